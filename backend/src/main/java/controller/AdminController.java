@@ -2,7 +2,12 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.UpdateUserRoleRequest;
 import com.example.demo.model.User;
+import com.example.demo.security.RateLimitFilter;
+import com.example.demo.service.AbandonedCartCleanupJob;
 import com.example.demo.service.AdminService;
+import com.example.demo.service.CartWriteBehindCache;
+import com.example.demo.service.ChatQueryAnalytics;
+import com.example.demo.service.EmailOutboxService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,6 +25,21 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private ChatQueryAnalytics chatQueryAnalytics;
+
+    @Autowired
+    private CartWriteBehindCache cartWriteBehindCache;
+
+    @Autowired
+    private AbandonedCartCleanupJob abandonedCartCleanupJob;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getAdminStats() {
         try {
@@ -84,4 +104,46 @@ public class AdminController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/rate-limits")
+    public ResponseEntity<List<Map<String, Object>>> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimitFilter.getStats());
+    }
+
+    @GetMapping("/chat-analytics")
+    public ResponseEntity<Map<String, Object>> getChatAnalytics() {
+        return ResponseEntity.ok(chatQueryAnalytics.getSummary());
+    }
+
+    @GetMapping("/cart-cache")
+    public ResponseEntity<Map<String, Object>> getCartCacheStats() {
+        return ResponseEntity.ok(cartWriteBehindCache.getStats());
+    }
+
+    @GetMapping("/cart-cleanup")
+    public ResponseEntity<Map<String, Object>> getCartCleanupReport() {
+        return ResponseEntity.ok(abandonedCartCleanupJob.getLastRun());
+    }
+
+    @PostMapping("/cart-cleanup/run")
+    public ResponseEntity<Map<String, Object>> runCartCleanup() {
+        try {
+            return ResponseEntity.ok(abandonedCartCleanupJob.removeAbandonedCarts());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/email-outbox")
+    public ResponseEntity<Map<String, Object>> getEmailOutboxStats() {
+        return ResponseEntity.ok(emailOutboxService.getStats());
+    }
+
+    @PostMapping("/email-outbox/{id}/retry")
+    public ResponseEntity<?> retryEmail(@PathVariable Long id) {
+        if (!emailOutboxService.retryDeadLetter(id)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No dead-lettered email with id " + id));
+        }
+        return ResponseEntity.ok(Map.of("message", "Email queued for retry"));
+    }
+}
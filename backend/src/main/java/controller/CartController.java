@@ -1,9 +1,11 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CartBatchRequest;
 import com.example.demo.dto.CartItemDto;
 import com.example.demo.model.CartItem;
 import com.example.demo.service.CartService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -21,7 +23,9 @@ public class CartController {
     private final CartService cartService;
 
     @GetMapping("/my")
-    public ResponseEntity<List<CartItemDto>> getMyCart(Authentication auth) {
+    public ResponseEntity<List<CartItemDto>> getMyCart(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+            Authentication auth) {
         System.out.println("🛒 Getting cart for user: " + (auth != null ? auth.getName() : "null"));
 
         if (auth == null) {
@@ -29,8 +33,16 @@ public class CartController {
         }
 
         try {
+            // Read the version before the cart, so a concurrent change can only make the ETag older than the body
+            String etag = "\"" + cartService.getCartVersion() + "\"";
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+
+            if (etagMatches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+
             List<CartItemDto> cartItems = cartService.getMyCart();
-            return ResponseEntity.ok(cartItems);
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(cartItems);
         } catch (Exception e) {
             System.out.println("❌ Error getting cart: " + e.getMessage());
             e.printStackTrace();
@@ -38,6 +50,15 @@ public class CartController {
         }
     }
 
+    @GetMapping("/count")
+    public ResponseEntity<Map<String, Integer>> getCartItemCount(Authentication auth) {
+        if (auth == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok(Map.of("count", cartService.getCartItemCount()));
+    }
+
     @PostMapping("/add")
     public ResponseEntity<?> addToCart(@RequestBody Map<String, Object> request, Authentication auth) {
         System.out.println("🛒 Add to cart request received");
@@ -267,6 +288,36 @@ public class CartController {
         }
     }
 
+    // Apply a list of add/update/remove operations in one request and one transaction
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyCartBatch(@RequestBody CartBatchRequest request, Authentication auth) {
+        System.out.println("🛒 Batch cart request for user: " + (auth != null ? auth.getName() : "null"));
+
+        if (auth == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Authentication required"));
+        }
+
+        if (request == null || request.getOperations() == null || request.getOperations().isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "At least one operation is required"));
+        }
+
+        if (request.getOperations().size() > CartService.MAX_BATCH_OPERATIONS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Too many operations, the maximum is " + CartService.MAX_BATCH_OPERATIONS));
+        }
+
+        try {
+            List<CartItemDto> cartItems = cartService.applyBatch(request.getOperations());
+            return ResponseEntity.ok(cartItems);
+        } catch (RuntimeException e) {
+            System.out.println("❌ Error applying cart batch: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/clear")
     public ResponseEntity<Map<String, String>> clearCart(Authentication auth) {
         System.out.println("🗑️ Clearing cart for user: " + (auth != null ? auth.getName() : "null"));
@@ -309,4 +360,20 @@ public class CartController {
                 "message", "Authentication successful"
         ));
     }
-}
\ No newline at end of file
+
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
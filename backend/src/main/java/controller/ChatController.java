@@ -36,7 +36,8 @@ public class ChatController {
 
             ChatResponse response = chatBotService.processMessage(
                     request.getMessage().trim(),
-                    request.getUserId()
+                    request.getUserId(),
+                    request.getSessionId()
             );
 
             logger.info("Sending chat response: {} of type: {}",
@@ -1,14 +1,24 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CheckoutRequest;
+import com.example.demo.dto.OrderPage;
+import com.example.demo.dto.OrderTotals;
 import com.example.demo.dto.PlaceOrderRequest;
 import com.example.demo.model.Order;
+import com.example.demo.security.CustomUserDetails;
+import com.example.demo.service.IdempotencyKeyConflictException;
+import com.example.demo.service.IdempotencyService;
 import com.example.demo.service.OrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -16,34 +26,67 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:3000")
 public class OrderController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
-    // Get all orders for the authenticated user
+    // Get the authenticated user's orders, newest first, one page at a time (?limit=, default 50).
+    // The body stays a plain array; the cursor for the next page is in the X-Next-Cursor header.
     @GetMapping("/my-orders")
-    public ResponseEntity<List<Order>> getMyOrders(Authentication authentication) {
+    public ResponseEntity<List<Order>> getMyOrders(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   Authentication authentication) {
         try {
-            String email = authentication.getName();
-            List<Order> orders = orderService.getOrdersByEmail(email);
-            return ResponseEntity.ok(orders);
+            OrderPage page = orderService.getOrdersPage(currentUser(authentication).getUserId(), cursor, limit);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getOrders());
         } catch (Exception e) {
             System.err.println("Error fetching orders: " + e.getMessage());
             return ResponseEntity.badRequest().build();
         }
     }
 
-    // Place a new order from cart items
+    // Number of orders and total spent over the user's whole history, without loading the orders
+    @GetMapping("/my-orders/summary")
+    public ResponseEntity<OrderTotals> getMyOrderTotals(Authentication authentication) {
+        try {
+            return ResponseEntity.ok(orderService.getOrderTotals(currentUser(authentication).getUserId()));
+        } catch (Exception e) {
+            System.err.println("Error fetching order totals: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Place a new order from cart items.
+    // With an Idempotency-Key header, a retried request returns the order it already created
+    // (marked with Idempotent-Replayed: true) instead of placing a second one.
     @PostMapping("/place-order")
-    public ResponseEntity<Order> placeOrder(@RequestBody PlaceOrderRequest request,
-                                            Authentication authentication) {
+    public ResponseEntity<?> placeOrder(@RequestBody PlaceOrderRequest request,
+                                        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                        Authentication authentication) {
         try {
-            String email = authentication.getName();
-            System.out.println("📦 Placing order for user: " + email);
+            CustomUserDetails principal = currentUser(authentication);
+            System.out.println("📦 Placing order for user: " + principal.getUsername());
             System.out.println("📦 Order details: " + request.getCartItems().size() + " items, Total: $" + request.getOrderTotal());
 
-            Order order = orderService.createOrderFromCart(request, email);
-            System.out.println("✅ Order created successfully with ID: " + order.getId());
+            if (idempotencyKey == null) {
+                Order order = orderService.createOrderFromCart(request, principal.getUser());
+                System.out.println("✅ Order created successfully with ID: " + order.getId());
+                return ResponseEntity.ok(order);
+            }
 
-            return ResponseEntity.ok(order);
+            return placeIdempotently(principal, idempotencyKey, request,
+                    () -> orderService.createOrderFromCart(request, principal.getUser()));
+        } catch (IdempotencyKeyConflictException e) {
+            System.err.println("❌ Idempotency key conflict: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             System.err.println("❌ Error placing order: " + e.getMessage());
             e.printStackTrace();
@@ -51,14 +94,40 @@ public class OrderController {
         }
     }
 
+    // Place an order from the cart stored on the server; the client sends only the shipping fee
+    // and whether to clear the cart. Takes an Idempotency-Key header like place-order.
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(@RequestBody CheckoutRequest request,
+                                      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                      Authentication authentication) {
+        try {
+            CustomUserDetails principal = currentUser(authentication);
+            System.out.println("📦 Checking out stored cart for user: " + principal.getUsername());
+
+            if (idempotencyKey == null) {
+                Order order = orderService.checkoutCart(request, principal.getUser());
+                System.out.println("✅ Order created successfully with ID: " + order.getId());
+                return ResponseEntity.ok(order);
+            }
+
+            return placeIdempotently(principal, idempotencyKey, request,
+                    () -> orderService.checkoutCart(request, principal.getUser()));
+        } catch (IdempotencyKeyConflictException e) {
+            System.err.println("❌ Idempotency key conflict: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("❌ Error checking out cart: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Update order status (for admin or user)
     @PutMapping("/{orderId}/status")
     public ResponseEntity<Order> updateOrderStatus(@PathVariable Long orderId,
                                                    @RequestParam String status,
                                                    Authentication authentication) {
         try {
-            String email = authentication.getName();
-            Order updatedOrder = orderService.updateOrderStatus(orderId, status, email);
+            Order updatedOrder = orderService.updateOrderStatus(orderId, status, currentUser(authentication).getUserId());
             return ResponseEntity.ok(updatedOrder);
         } catch (Exception e) {
             System.err.println("Error updating order status: " + e.getMessage());
@@ -71,18 +140,34 @@ public class OrderController {
     public ResponseEntity<Order> getOrderDetails(@PathVariable Long orderId,
                                                  Authentication authentication) {
         try {
-            String email = authentication.getName();
-            List<Order> userOrders = orderService.getOrdersByEmail(email);
-
-            Order order = userOrders.stream()
-                    .filter(o -> o.getId().equals(orderId))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Order not found or doesn't belong to user"));
-
+            // Single lookup by id with an ownership check, instead of loading every order of the user
+            Order order = orderService.getOrderById(orderId, currentUser(authentication).getUserId());
             return ResponseEntity.ok(order);
         } catch (Exception e) {
             System.err.println("Error fetching order details: " + e.getMessage());
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    // Place the order once per Idempotency-Key; retries get the stored response, marked as replayed
+    private ResponseEntity<?> placeIdempotently(CustomUserDetails principal, String idempotencyKey,
+                                                Object request, Supplier<Order> placeOrder) {
+        IdempotencyService.Response response = idempotencyService.execute(principal.getUserId(), idempotencyKey, request, placeOrder);
+        System.out.println(response.isReplayed()
+                ? "🔁 Replayed order for idempotency key: " + idempotencyKey
+                : "✅ Order created successfully for idempotency key: " + idempotencyKey);
+
+        return ResponseEntity.status(response.getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(response.isReplayed()))
+                .body(response.getBody());
+    }
+
+    // The JWT filter puts the loaded user into the principal, so its id needs no further lookup
+    private CustomUserDetails currentUser(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
+            throw new RuntimeException("Authentication required");
+        }
+        return (CustomUserDetails) authentication.getPrincipal();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One entry of a batch cart request: "add", "update" or "remove"
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationDto {
+    private String op;
+
+    // update / remove
+    private Long cartItemId;
+
+    // add
+    private Object productId; // numeric or string product id, as sent by the shop frontend
+    private String productName;
+    private String productImage;
+    private String color;
+    private Double price;
+
+    // add / update
+    private Integer quantity;
+}
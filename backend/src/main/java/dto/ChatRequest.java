@@ -3,6 +3,7 @@ package com.example.demo.dto;
 public class ChatRequest {
     private String message;
     private Long userId; // optional, for logged-in users
+    private String sessionId; // optional, returned by the server to continue a conversation
 
     // Default constructor
     public ChatRequest() {}
@@ -29,4 +30,12 @@ public class ChatRequest {
     public void setUserId(Long userId) {
         this.userId = userId;
     }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
 }
\ No newline at end of file
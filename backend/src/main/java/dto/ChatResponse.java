@@ -6,6 +6,7 @@ public class ChatResponse {
     private String message;
     private String type; // "text", "product_list", "order_info", "greeting", "help", "error"
     private List<Object> data; // additional data like product list or order info
+    private String sessionId; // conversation session to send back with follow-up messages
 
     // Default constructor
     public ChatResponse() {}
@@ -47,4 +48,12 @@ public class ChatResponse {
     public void setData(List<Object> data) {
         this.data = data;
     }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Checkout of the cart stored on the server: the items and subtotal come from cart_items, not the client
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    private Double shippingFee;
+    private boolean clearCart; // empty the cart in the same transaction as the order
+}
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Order header fields only, selected directly by query without loading the order entity or its items
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDto {
+    private Long id;
+    private LocalDateTime createdAt;
+    private OrderStatus status;
+    private Double orderTotal;
+    private int totalItems;
+    private int lineCount;
+}
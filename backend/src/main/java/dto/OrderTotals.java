@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Totals over all of a user's orders, shown on the profile
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTotals {
+    private long totalOrders;
+    private double totalSpent;
+}
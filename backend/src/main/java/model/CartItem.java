@@ -5,13 +5,23 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
 
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+        // One row per product variant in a user's cart; also the conflict target of the add-to-cart upsert
+        // (db/cart-items-unique.sql merges duplicate lines and adds it where the schema update could not)
+        @UniqueConstraint(name = "uk_cart_items_user_product_color", columnNames = {"user_id", "product_id", "color"})
+}, indexes = {
+        // Lets the abandoned cart cleanup find each cart's last change from the index alone
+        @Index(name = "idx_cart_items_user_updated", columnList = "user_id, updated_at")
+})
 public class CartItem {
 
     @Id
@@ -40,6 +50,11 @@ public class CartItem {
     @Column(nullable = false)
     private Integer quantity;
 
+    // Last change to the row; the native cart statements set it explicitly
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false, columnDefinition = "timestamp(6) default current_timestamp")
+    private LocalDateTime updatedAt;
+
     // Calculated method for item total
     public Double getItemTotal() {
         return price != null && quantity != null ? price * quantity : 0.0;
@@ -16,11 +16,18 @@ import java.util.List;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Order history pages: a user's orders by (created_at, id), newest first
+        @Index(name = "idx_orders_user_created_id", columnList = "user_id, created_at, id"),
+        // Orders in one status, newest first
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at")
+})
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence so inserts can be batched (see db/order-sequences.sql)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -31,8 +38,10 @@ public class Order {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    @Column(nullable = false, length = 50)
-    private String status; // PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED
+    // Stored as a smallint code (see db/order-status.sql for the conversion of the old text column)
+    @Convert(converter = OrderStatusConverter.class)
+    @Column(nullable = false)
+    private OrderStatus status;
 
     @Column(name = "subtotal", nullable = false)
     private Double subtotal;
@@ -43,13 +52,25 @@ public class Order {
     @Column(name = "order_total", nullable = false)
     private Double orderTotal;
 
+    // Item counts stored on the order when it is placed, so listings and the admin
+    // dashboard can show them without loading order_items (see db/order-summary.sql)
+    @Column(name = "total_items", nullable = false, columnDefinition = "integer default 0")
+    private int totalItems; // sum of the item quantities
+
+    @Column(name = "line_count", nullable = false, columnDefinition = "integer default 0")
+    private int lineCount; // number of order items
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     @JsonManagedReference
     private List<OrderItem> items;
 
-    // Calculated method for total items count
-    public int getTotalItems() {
-        return items != null ? items.stream().mapToInt(OrderItem::getQuantity).sum() : 0;
+    // Orders saved through the entity take their counts from the items they are saved with
+    @PrePersist
+    void summarizeItems() {
+        if (items != null) {
+            totalItems = items.stream().mapToInt(OrderItem::getQuantity).sum();
+            lineCount = items.size();
+        }
     }
 
     // Helper method to avoid lazy loading issues in JSON serialization
@@ -67,7 +88,8 @@ public class Order {
                 ", subtotal=" + subtotal +
                 ", shippingFee=" + shippingFee +
                 ", orderTotal=" + orderTotal +
-                ", itemsCount=" + (items != null ? items.size() : 0) +
+                ", totalItems=" + totalItems +
+                ", lineCount=" + lineCount +
                 '}';
     }
 }
\ No newline at end of file
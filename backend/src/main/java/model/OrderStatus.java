@@ -0,0 +1,89 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Order status, stored in orders.status as a smallint code (see OrderStatusConverter).
+ *
+ * Codes are part of the stored data: never change or reuse one, only add new ones
+ * (db/order-status.sql maps the old text values to them). In JSON a status is its
+ * lowercase name, and parsing accepts any case, so "ORDERED" and "ordered" are the same status.
+ */
+public enum OrderStatus {
+    ORDERED(0),    // Initial status when order is placed
+    PENDING(1),
+    CONFIRMED(2),  // When merchant confirms the order
+    PROCESSING(3),
+    SHIPPED(4),    // When order is shipped
+    DELIVERED(5),  // When order is delivered
+    CANCELLED(6);  // When order is cancelled
+
+    // Allowed changes from each status. Orders only move forward (skipping steps is fine, e.g.
+    // confirmed to shipped) and can be cancelled until they ship; only a shipped order can be
+    // delivered, and delivered and cancelled orders are final. Staying on a status is not a change.
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(ORDERED, EnumSet.of(PENDING, CONFIRMED, PROCESSING, SHIPPED, CANCELLED));
+        TRANSITIONS.put(PENDING, EnumSet.of(CONFIRMED, PROCESSING, SHIPPED, CANCELLED));
+        TRANSITIONS.put(CONFIRMED, EnumSet.of(PROCESSING, SHIPPED, CANCELLED));
+        TRANSITIONS.put(PROCESSING, EnumSet.of(SHIPPED, CANCELLED));
+        TRANSITIONS.put(SHIPPED, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(DELIVERED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+    }
+
+    private static final OrderStatus[] BY_CODE = new OrderStatus[values().length];
+
+    static {
+        for (OrderStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+
+    private final short code;
+
+    OrderStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return name().toLowerCase();
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+
+    public static OrderStatus fromCode(short code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Unknown order status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    // Parse a status in any case, e.g. "shipped" or "SHIPPED"
+    @JsonCreator
+    public static OrderStatus from(String value) {
+        if (value != null) {
+            String normalized = value.trim();
+            for (OrderStatus status : values()) {
+                if (status.name().equalsIgnoreCase(normalized)) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid order status: " + value);
+    }
+}
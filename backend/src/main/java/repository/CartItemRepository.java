@@ -1,9 +1,11 @@
 // Fixed CartItemRepository.java
 package com.example.demo.repository;
 
+import com.example.demo.dto.CartItemDto;
 import com.example.demo.model.CartItem;
 import com.example.demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,9 +18,55 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     List<CartItem> findByUser(User user);
 
+    // Cart rows selected straight into DTOs: one query, no entity hydration or dirty checking
+    @Query("SELECT new com.example.demo.dto.CartItemDto(c.id, c.productId, c.productName, c.productImage, " +
+            "c.color, c.price, c.quantity, u.id, u.email) " +
+            "FROM CartItem c JOIN c.user u WHERE u.id = :userId ORDER BY c.id")
+    List<CartItemDto> findCartItemDtosByUserId(@Param("userId") Long userId);
+
     // Fixed method with @Query to avoid parsing issues
     @Query("SELECT c FROM CartItem c WHERE c.user = :user AND c.productId = :productId AND c.color = :color")
     Optional<CartItem> findByUserAndProductIdAndColor(@Param("user") User user,
                                                       @Param("productId") Long productId,
                                                       @Param("color") String color);
-}
\ No newline at end of file
+
+    // Insert the item or add to the quantity of the existing row in a single statement; returns the row
+    @Query(value = "INSERT INTO cart_items (user_id, product_id, product_name, product_image, color, price, quantity, updated_at) " +
+            "VALUES (:userId, :productId, :productName, :productImage, :color, :price, :quantity, now()) " +
+            "ON CONFLICT (user_id, product_id, color) DO UPDATE SET " +
+            "quantity = cart_items.quantity + EXCLUDED.quantity, price = EXCLUDED.price, " +
+            "product_name = EXCLUDED.product_name, product_image = EXCLUDED.product_image, updated_at = now() " +
+            "RETURNING *", nativeQuery = true)
+    CartItem upsertCartItem(@Param("userId") Long userId,
+                            @Param("productId") Long productId,
+                            @Param("productName") String productName,
+                            @Param("productImage") String productImage,
+                            @Param("color") String color,
+                            @Param("price") double price,
+                            @Param("quantity") int quantity);
+
+    // Ownership-checked quantity update in one statement; empty if the item doesn't exist or isn't the user's
+    @Query(value = "UPDATE cart_items SET quantity = :quantity, updated_at = now() WHERE id = :id AND user_id = :userId RETURNING *",
+            nativeQuery = true)
+    Optional<CartItem> updateQuantityForUser(@Param("id") Long id,
+                                             @Param("userId") Long userId,
+                                             @Param("quantity") int quantity);
+
+    // Ownership-checked delete in one statement; returns the number of rows removed
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.id = :id AND c.user.id = :userId")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Total quantity in a user's cart, aggregated in the database
+    @Query("SELECT COALESCE(SUM(c.quantity), 0) FROM CartItem c WHERE c.user.id = :userId")
+    long sumQuantityByUserId(@Param("userId") Long userId);
+
+    // Bulk delete of a user's cart in one statement
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.user.id IN (SELECT u.id FROM User u WHERE u.email = :email)")
+    int deleteAllByUserEmail(@Param("email") String email);
+}
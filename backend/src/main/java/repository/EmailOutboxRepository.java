@@ -0,0 +1,61 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Lease up to :limit due emails to this dispatcher. A row left in SENDING by a crashed
+    // dispatcher becomes due again when its lease (next_attempt_at) runs out.
+    @Transactional
+    @Query(value = "UPDATE email_outbox SET status = 'SENDING', next_attempt_at = :leaseUntil " +
+            "WHERE id IN (SELECT id FROM email_outbox WHERE status IN ('PENDING', 'SENDING') " +
+            "AND next_attempt_at <= :now ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *", nativeQuery = true)
+    List<EmailOutbox> claimDue(@Param("now") LocalDateTime now,
+                               @Param("leaseUntil") LocalDateTime leaseUntil,
+                               @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENT', e.sentAt = :sentAt, e.attempts = e.attempts + 1, " +
+            "e.lastError = NULL WHERE e.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.lastError = :error WHERE e.id = :id")
+    int markFailed(@Param("id") Long id,
+                   @Param("status") String status,
+                   @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+
+    // The not yet claimed email of this type for an order, locked so the dispatcher skips it while it is being replaced
+    @Query(value = "SELECT * FROM email_outbox WHERE email_type = :type AND order_id = :orderId AND status = 'PENDING' " +
+            "ORDER BY id DESC LIMIT 1 FOR UPDATE", nativeQuery = true)
+    Optional<EmailOutbox> findPendingForUpdate(@Param("type") String type, @Param("orderId") Long orderId);
+
+    long countByStatus(String status);
+
+    List<EmailOutbox> findByStatusOrderByIdDesc(String status, Pageable pageable);
+
+    // Put a dead-lettered email back in the queue
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = 'PENDING', e.attempts = 0, e.nextAttemptAt = :now " +
+            "WHERE e.id = :id AND e.status = 'DEAD'")
+    int requeueDead(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
@@ -1,6 +1,10 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.OrderSummaryDto;
 import com.example.demo.model.Order;
+import com.example.demo.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,24 +12,111 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    // Find orders by user ID ordered by creation date
-    // Fixed: Use user_id (underscore) instead of userId (camelCase)
-    List<Order> findByUser_IdOrderByCreatedAtDesc(Long userId);
+    // First page of a user's order history, newest first (an index range scan on idx_orders_user_created_id)
+    // The user is joined in, since callers only have the id and the response includes the user
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findHistoryPage(@Param("userId") Long userId, Pageable pageable);
+
+    // The page after the given (createdAt, id) position; the row comparison lets the index seek straight to it
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND (o.createdAt, o.id) < (:createdAt, :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findHistoryPageAfter(@Param("userId") Long userId,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+
+    // Initialize the items of already loaded orders with one query
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o IN :orders")
+    List<Order> fetchItems(@Param("orders") List<Order> orders);
+
+    // Ids per nextval of orders_seq and order_items_seq (the allocationSize of Order and OrderItem)
+    int ID_BLOCK_SIZE = 50;
+
+    /**
+     * Turn the user's stored cart into an order in one statement: the cart rows are locked, the
+     * order and its items are inserted from them, and the cart is deleted if clearCart is set.
+     * Returns the new order's id, or nothing if the cart is empty.
+     *
+     * Ids come from the sequences Hibernate allocates from, the way its pooled optimizer uses them:
+     * a nextval of V reserves V - ID_BLOCK_SIZE + 1 to V. The statement takes one block per
+     * ID_BLOCK_SIZE items (and one for the order) and numbers the rows within it. A value below
+     * the block size is the sequence's start, which Hibernate skips, so it is skipped here too.
+     * The creation time is passed in so these orders sort by the same clock as the ones saved
+     * through the entity.
+     */
+    @Query(value = "WITH locked AS (" +
+            "    SELECT id, product_name, product_image, color, price, quantity FROM cart_items" +
+            "    WHERE user_id = :userId AND quantity > 0 FOR UPDATE), " +
+            "cart AS (" +
+            "    SELECT locked.*, row_number() OVER (ORDER BY id) - 1 AS n FROM locked), " +
+            "placed AS (" +
+            "    INSERT INTO orders (id, user_id, created_at, status, subtotal, shipping_fee, order_total, total_items, line_count)" +
+            "    SELECT CASE WHEN b.top < " + ID_BLOCK_SIZE + " THEN nextval('orders_seq') ELSE b.top END," +
+            "        :userId, :createdAt, :status, s.subtotal, :shippingFee, s.subtotal + :shippingFee, s.total_items, s.line_count" +
+            "    FROM (SELECT sum(price * quantity) AS subtotal, sum(quantity) AS total_items, count(*) AS line_count" +
+            "        FROM cart HAVING count(*) > 0) s" +
+            "    CROSS JOIN LATERAL (SELECT nextval('orders_seq') AS top) b" +
+            "    RETURNING id), " +
+            "blocks AS (" +
+            "    SELECT array_agg(CASE WHEN b.top < " + ID_BLOCK_SIZE + " THEN nextval('order_items_seq') ELSE b.top END ORDER BY b.i) AS tops" +
+            "    FROM (SELECT i, nextval('order_items_seq') AS top" +
+            "        FROM generate_series(1, (SELECT (count(*) + " + (ID_BLOCK_SIZE - 1) + ") / " + ID_BLOCK_SIZE + " FROM cart)) i) b), " +
+            "items AS (" +
+            "    INSERT INTO order_items (id, order_id, product_name, product_image, color, price, quantity)" +
+            "    SELECT blocks.tops[cart.n / " + ID_BLOCK_SIZE + " + 1] - " + (ID_BLOCK_SIZE - 1) + " + cart.n % " + ID_BLOCK_SIZE + "," +
+            "        placed.id, cart.product_name, cart.product_image, cart.color, cart.price, cart.quantity" +
+            "    FROM cart CROSS JOIN placed CROSS JOIN blocks ORDER BY cart.n), " +
+            "cleared AS (" +
+            "    DELETE FROM cart_items WHERE :clearCart AND id IN (SELECT id FROM cart)) " +
+            "SELECT id FROM placed", nativeQuery = true)
+    Optional<Long> checkoutCart(@Param("userId") Long userId,
+                                @Param("createdAt") LocalDateTime createdAt,
+                                @Param("status") short status,
+                                @Param("shippingFee") double shippingFee,
+                                @Param("clearCart") boolean clearCart);
+
+    // Single order with its user and items, in one query
+    @Query("SELECT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.items WHERE o.id = :id")
+    Optional<Order> findWithItemsById(@Param("id") Long id);
+
+    // Single order with its user joined in, for ownership checks and the response body
+    @EntityGraph(attributePaths = "user")
+    Optional<Order> findWithUserById(Long id);
+
+    // Most recent order summaries for a user; the page size is pushed down as a LIMIT
+    @Query("SELECT new com.example.demo.dto.OrderSummaryDto(o.id, o.createdAt, o.status, o.orderTotal, o.totalItems, o.lineCount) " +
+            "FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDto> findOrderSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
 
     // Find orders by user ID and status
     // Fixed: Use user_id (underscore) instead of userId (camelCase)
-    List<Order> findByUser_IdAndStatusOrderByCreatedAtDesc(Long userId, String status);
+    List<Order> findByUser_IdAndStatusOrderByCreatedAtDesc(Long userId, OrderStatus status);
 
     // Count orders by user ID
     // Fixed: Use user_id (underscore) instead of userId (camelCase)
     long countByUser_Id(Long userId);
 
-    // Find orders by status
-    List<Order> findByStatusOrderByCreatedAtDesc(String status);
+    // Amount a user has spent on orders, for the profile alongside countByUser_Id
+    @Query("SELECT COALESCE(SUM(o.orderTotal), 0.0) FROM Order o WHERE o.user.id = :userId")
+    double sumOrderTotalByUserId(@Param("userId") Long userId);
+
+    // Dashboard totals aggregated in the database, without loading orders or their items
+    @Query("SELECT COALESCE(SUM(o.orderTotal), 0.0) FROM Order o")
+    double sumOrderTotal();
+
+    @Query("SELECT COALESCE(SUM(o.totalItems), 0) FROM Order o")
+    long sumTotalItems();
+
+    // Find orders by status, read in order from idx_orders_status_created
+    List<Order> findByStatusOrderByCreatedAtDesc(OrderStatus status);
 
     // Delete order and its items (handles foreign key constraint)
     @Transactional
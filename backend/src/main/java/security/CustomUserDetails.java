@@ -69,4 +69,8 @@ public class CustomUserDetails implements UserDetails {
     public User getUser() {
         return user;
     }
+
+    public Long getUserId() {
+        return user.getId();
+    }
 }
\ No newline at end of file
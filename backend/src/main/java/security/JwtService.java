@@ -15,6 +15,8 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
+    public static final String USER_ID_CLAIM = "uid";
+
     private final Key secretKey;
     private final long jwtExpiration;
 
@@ -32,6 +34,9 @@ public class JwtService {
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", userDetails.getAuthorities().iterator().next().getAuthority());
+        if (userDetails instanceof CustomUserDetails) {
+            claims.put(USER_ID_CLAIM, ((CustomUserDetails) userDetails).getUserId());
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
@@ -53,6 +58,21 @@ public class JwtService {
         return resolver.apply(extractAllClaims(token));
     }
 
+    /**
+     * Verify and parse the token once, for callers that need several claims
+     */
+    public Claims parseToken(String token) {
+        return extractAllClaims(token);
+    }
+
+    /**
+     * User id claim, or null for tokens issued before it was added
+     */
+    public Long extractUserId(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return userId != null ? userId.longValue() : null;
+    }
+
     private Claims extractAllClaims(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(secretKey)
@@ -70,7 +90,10 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(extractAllClaims(token), userDetails);
+    }
+
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 }
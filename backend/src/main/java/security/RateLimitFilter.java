@@ -0,0 +1,101 @@
+package com.example.demo.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-client throttling for the public chat and contact endpoints.
+ *
+ * Clients are identified by the remote address, which Tomcat resolves from
+ * X-Forwarded-For when running behind the hosting proxy (server.forward-headers-strategy).
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final RateLimiter chatLimiter;
+    private final RateLimiter contactLimiter;
+
+    public RateLimitFilter(
+            @Value("${rate-limit.chat.capacity:20}") int chatCapacity,
+            @Value("${rate-limit.chat.refill-per-minute:30}") int chatRefillPerMinute,
+            @Value("${rate-limit.contact.capacity:3}") int contactCapacity,
+            @Value("${rate-limit.contact.refill-per-minute:5}") int contactRefillPerMinute,
+            @Value("${rate-limit.max-clients:10000}") int maxClients
+    ) {
+        this.chatLimiter = new RateLimiter("chat", chatCapacity, chatRefillPerMinute, maxClients);
+        this.contactLimiter = new RateLimiter("contact", contactCapacity, contactRefillPerMinute, maxClients);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return "OPTIONS".equals(request.getMethod()) || limiterFor(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        RateLimiter limiter = limiterFor(request.getRequestURI());
+        long waitNanos = limiter.tryAcquire(request.getRemoteAddr());
+
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+            logger.debug("Rate limit exceeded on {} for client {}", limiter.getName(), request.getRemoteAddr());
+
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(
+                    "{\"error\":\"Too many requests. Please try again in " + retryAfterSeconds + " seconds.\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Allowed and rejected request counts per throttled endpoint group
+     */
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (RateLimiter limiter : List.of(chatLimiter, contactLimiter)) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("endpoint", limiter.getName());
+            entry.put("allowed", limiter.getAllowedCount());
+            entry.put("rejected", limiter.getRejectedCount());
+            entry.put("trackedClients", limiter.getTrackedClients());
+            stats.add(entry);
+        }
+        return stats;
+    }
+
+    private RateLimiter limiterFor(String path) {
+        if (path.startsWith("/api/chat/")) {
+            return chatLimiter;
+        }
+        if (path.startsWith("/api/contact/")) {
+            return contactLimiter;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free token bucket rate limiter keyed by client.
+ *
+ * Each bucket is a single AtomicLong holding the time at which the bucket will be full again
+ * (the GCRA form of a token bucket), updated with a CAS loop. Buckets are spread over a fixed
+ * number of stripes with a hard per-stripe cap; when a stripe is full, buckets that have
+ * refilled completely are dropped first, since they behave exactly like a new bucket.
+ */
+public class RateLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final String name;
+    private final long intervalNanos; // time to earn one token
+    private final long burstNanos;    // time to refill the whole bucket
+    private final int maxKeysPerStripe;
+    private final Map<String, AtomicLong>[] stripes;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public RateLimiter(String name, int capacity, int refillPerMinute, int maxKeys) {
+        if (capacity <= 0 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Rate limit capacity and refill rate must be positive");
+        }
+        this.name = name;
+        this.intervalNanos = 60_000_000_000L / refillPerMinute;
+        this.burstNanos = intervalNanos * capacity;
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        this.stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Take one token for the given client.
+     *
+     * @return 0 if the request is allowed, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = bucketFor(key, now);
+
+        while (true) {
+            long fullAt = bucket.get();
+            long start = fullAt - now > 0 ? fullAt : now;
+            long next = start + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getTrackedClients() {
+        int total = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            total += stripe.size();
+        }
+        return total;
+    }
+
+    private AtomicLong bucketFor(String key, long now) {
+        int h = key.hashCode();
+        Map<String, AtomicLong> stripe = stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+
+        AtomicLong bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.size() >= maxKeysPerStripe) {
+            evict(stripe, now);
+        }
+        return stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    // Drop refilled buckets; if every bucket is still active, drop arbitrary ones down to 3/4 of the cap
+    private void evict(Map<String, AtomicLong> stripe, long now) {
+        stripe.values().removeIf(bucket -> bucket.get() - now <= 0);
+
+        int target = maxKeysPerStripe - Math.max(1, maxKeysPerStripe / 4);
+        Iterator<AtomicLong> iterator = stripe.values().iterator();
+        while (stripe.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -25,6 +25,7 @@ public class SecurityConfig {
 
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final PasswordEncoder passwordEncoder;
 
     @Bean
@@ -49,6 +50,8 @@ public class SecurityConfig {
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
+                // Throttle public chat/contact endpoints before any other work is done
+                .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
                 // Add JWT filter ONLY for authenticated endpoints
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
@@ -86,6 +89,9 @@ public class SecurityConfig {
         // Allow all headers
         config.setAllowedHeaders(List.of("*"));
 
+        // Let the frontend read the order history cursor
+        config.setExposedHeaders(List.of("X-Next-Cursor", "Idempotent-Replayed"));
+
         // Allow credentials
         config.setAllowCredentials(true);
 
@@ -44,4 +44,17 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
         return userDetails;
     }
+
+    /**
+     * Load the user named by the token's id claim; a primary key lookup instead of the email index
+     */
+    public UserDetails loadUserById(Long id) throws UsernameNotFoundException {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> {
+                    System.out.println("❌ User not found with ID: " + id);
+                    return new UsernameNotFoundException("User not found with ID: " + id);
+                });
+
+        return new CustomUserDetails(user);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes carts nobody has touched for cart.cleanup.abandoned-after-days.
+ *
+ * A cart counts as abandoned when its most recently updated row is older than the cutoff.
+ * Carts are walked in user id order (keyset pagination), one short transaction per batch,
+ * each with a statement timeout. A batch that hits the timeout is retried at half the size,
+ * and the whole run stops after cart.cleanup.max-run-seconds, so the job never holds locks
+ * for long or keeps a connection from the small pool busy.
+ */
+@Component
+public class AbandonedCartCleanupJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartCleanupJob.class);
+
+    private static final int MIN_BATCH_SIZE = 10;
+    private static final String QUERY_CANCELED = "57014";
+
+    // Picks the next batch of abandoned carts after the cursor and deletes them in one statement.
+    // A row touched after the cutoff keeps its whole cart, even if it changed after the batch was chosen.
+    private static final String DELETE_BATCH_SQL =
+            "WITH batch AS (" +
+            "  SELECT user_id FROM cart_items WHERE user_id > ? " +
+            "  GROUP BY user_id HAVING max(updated_at) < ? ORDER BY user_id LIMIT ?" +
+            "), deleted AS (" +
+            "  DELETE FROM cart_items c USING batch b WHERE c.user_id = b.user_id " +
+            "  AND NOT EXISTS (SELECT 1 FROM cart_items t WHERE t.user_id = c.user_id AND t.updated_at >= ?) " +
+            "  RETURNING c.user_id" +
+            ") " +
+            "SELECT (SELECT max(user_id) FROM batch) AS last_user_id, d.user_id, count(*) AS row_count " +
+            "FROM deleted d GROUP BY d.user_id " +
+            "UNION ALL SELECT (SELECT max(user_id) FROM batch), NULL, 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CartWriteBehindCache cartCache;
+    private final CartVersionTracker cartVersions;
+
+    private final boolean enabled;
+    private final int abandonedAfterDays;
+    private final int batchSize;
+    private final long batchTimeoutMillis;
+    private final long maxRunMillis;
+    private final long pauseMillis;
+
+    private volatile Map<String, Object> lastRun = Map.of("status", "never run");
+
+    public AbandonedCartCleanupJob(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   CartWriteBehindCache cartCache,
+                                   CartVersionTracker cartVersions,
+                                   @Value("${cart.cleanup.enabled:true}") boolean enabled,
+                                   @Value("${cart.cleanup.abandoned-after-days:30}") int abandonedAfterDays,
+                                   @Value("${cart.cleanup.batch-size:500}") int batchSize,
+                                   @Value("${cart.cleanup.batch-timeout-ms:2000}") long batchTimeoutMillis,
+                                   @Value("${cart.cleanup.max-run-seconds:60}") long maxRunSeconds,
+                                   @Value("${cart.cleanup.pause-ms:200}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cartCache = cartCache;
+        this.cartVersions = cartVersions;
+        this.enabled = enabled;
+        this.abandonedAfterDays = abandonedAfterDays;
+        this.batchSize = Math.max(MIN_BATCH_SIZE, batchSize);
+        this.batchTimeoutMillis = batchTimeoutMillis;
+        this.maxRunMillis = maxRunSeconds * 1000;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(cron = "${cart.cleanup.cron:0 30 3 * * *}")
+    public void scheduledCleanup() {
+        if (enabled) {
+            removeAbandonedCarts();
+        }
+    }
+
+    public synchronized Map<String, Object> removeAbandonedCarts() {
+        long start = System.currentTimeMillis();
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(abandonedAfterDays));
+
+        long cursor = 0;
+        int currentBatchSize = batchSize;
+        int batches = 0;
+        long rowsDeleted = 0;
+        long cartsDeleted = 0;
+        String status = "completed";
+
+        while (true) {
+            if (System.currentTimeMillis() - start > maxRunMillis) {
+                status = "stopped after the run time limit";
+                break;
+            }
+
+            BatchResult result;
+            try {
+                result = deleteBatch(cursor, cutoff, currentBatchSize);
+            } catch (DataAccessException e) {
+                if (!isStatementTimeout(e)) {
+                    logger.error("Abandoned cart cleanup failed after {} batches: {}", batches, e.getMessage());
+                    status = "failed: " + e.getMostSpecificCause().getMessage();
+                    break;
+                }
+                if (currentBatchSize == MIN_BATCH_SIZE) {
+                    logger.warn("Abandoned cart cleanup batch timed out at the minimum size, stopping");
+                    status = "stopped after a batch timeout";
+                    break;
+                }
+                currentBatchSize = Math.max(MIN_BATCH_SIZE, currentBatchSize / 2);
+                logger.info("Abandoned cart cleanup batch timed out, retrying with {} carts", currentBatchSize);
+                continue;
+            }
+
+            if (result.lastUserId == null) {
+                break;
+            }
+            batches++;
+            cursor = result.lastUserId;
+            rowsDeleted += result.rowsDeleted;
+            cartsDeleted += result.userIds.size();
+
+            // The database copy is gone; drop cached carts and move their ETags on
+            for (Long userId : result.userIds) {
+                cartCache.cleared(userId);
+                cartVersions.bump(userId);
+            }
+
+            if (!pause()) {
+                status = "interrupted";
+                break;
+            }
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        logger.info("Abandoned cart cleanup {}: removed {} rows from {} carts older than {} days in {} batches, {} ms",
+                status, rowsDeleted, cartsDeleted, abandonedAfterDays, batches, duration);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("status", status);
+        report.put("startedAt", new Timestamp(start).toLocalDateTime().toString());
+        report.put("abandonedAfterDays", abandonedAfterDays);
+        report.put("rowsDeleted", rowsDeleted);
+        report.put("cartsDeleted", cartsDeleted);
+        report.put("batches", batches);
+        report.put("durationMs", duration);
+        lastRun = report;
+        return report;
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    private BatchResult deleteBatch(long cursor, Timestamp cutoff, int limit) {
+        return transactionTemplate.execute(status -> {
+            // Scoped to this transaction only
+            jdbcTemplate.queryForObject("SELECT set_config('statement_timeout', ?, true)", String.class,
+                    String.valueOf(batchTimeoutMillis));
+
+            BatchResult result = new BatchResult();
+            jdbcTemplate.query(DELETE_BATCH_SQL, rs -> {
+                long lastUserId = rs.getLong("last_user_id");
+                if (!rs.wasNull()) {
+                    result.lastUserId = lastUserId;
+                }
+                long userId = rs.getLong("user_id");
+                if (!rs.wasNull()) {
+                    result.userIds.add(userId);
+                    result.rowsDeleted += rs.getLong("row_count");
+                }
+            }, cursor, cutoff, limit, cutoff);
+            return result;
+        });
+    }
+
+    // Give the connection pool back to request threads between batches
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isStatementTimeout(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        return cause instanceof SQLException && QUERY_CANCELED.equals(((SQLException) cause).getSQLState());
+    }
+
+    private static final class BatchResult {
+        private Long lastUserId;
+        private long rowsDeleted;
+        private final List<Long> userIds = new ArrayList<>();
+    }
+}
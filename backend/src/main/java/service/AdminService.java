@@ -2,6 +2,7 @@
 package com.example.demo.service;
 
 import com.example.demo.model.Order;
+import com.example.demo.model.OrderStatus;
 import com.example.demo.model.Role;
 import com.example.demo.model.User;
 import com.example.demo.repository.OrderRepository;
@@ -25,7 +26,7 @@ public class AdminService {
     private OrderRepository orderRepository;
 
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
     public Map<String, Object> getAdminStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -38,11 +39,9 @@ public class AdminService {
         long totalOrders = orderRepository.count();
         stats.put("totalOrders", totalOrders);
 
-        // Calculate total revenue from orders
-        Double totalRevenue = orderRepository.findAll().stream()
-                .mapToDouble(Order::getOrderTotal)
-                .sum();
-        stats.put("totalRevenue", totalRevenue);
+        // Revenue and items sold, summed in the database from the order columns
+        stats.put("totalRevenue", orderRepository.sumOrderTotal());
+        stats.put("totalItemsSold", orderRepository.sumTotalItems());
 
         // For now, we'll set products to 0 since we don't have a products table yet
         stats.put("totalProducts", 0);
@@ -99,6 +98,8 @@ public class AdminService {
             orderMap.put("createdAt", order.getCreatedAt());
             orderMap.put("subtotal", order.getSubtotal());
             orderMap.put("shippingFee", order.getShippingFee());
+            orderMap.put("totalItems", order.getTotalItems());
+            orderMap.put("lineCount", order.getLineCount());
 
             // Add order items
             List<Map<String, Object>> items = order.getItems().stream()
@@ -122,32 +123,28 @@ public class AdminService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        // Validate status - you can add more validation as needed
-        List<String> validStatuses = List.of("pending", "processing", "shipped", "delivered", "cancelled");
-        if (!validStatuses.contains(status.toLowerCase())) {
+        // Validate status (any case) and that the order can move to it
+        OrderStatus newStatus;
+        try {
+            newStatus = OrderStatus.from(status);
+        } catch (IllegalArgumentException e) {
             throw new RuntimeException("Invalid order status: " + status);
         }
 
         // Store previous status for email notification
-        String previousStatus = order.getStatus();
+        OrderStatus previousStatus = order.getStatus();
+        if (previousStatus == newStatus) {
+            return;
+        }
+        if (!previousStatus.canTransitionTo(newStatus)) {
+            throw new RuntimeException("Cannot change order status from " + previousStatus.getValue() + " to " + newStatus.getValue());
+        }
 
         // Update the order status
-        order.setStatus(status.toLowerCase());
+        order.setStatus(newStatus);
         Order savedOrder = orderRepository.save(order);
 
-        // Send email notification to customer about status change
-        try {
-            User customer = savedOrder.getUser();
-            emailService.sendOrderStatusUpdateEmail(
-                    customer.getEmail(),
-                    customer.getName(),
-                    savedOrder,
-                    previousStatus,
-                    status.toLowerCase()
-            );
-        } catch (Exception e) {
-            // Log the error but don't fail the order update
-            System.err.println("Failed to send order status update email for order " + orderId + ": " + e.getMessage());
-        }
+        // Queue the status email; it is only sent if this update commits
+        emailOutboxService.enqueueOrderStatusUpdate(savedOrder.getUser(), savedOrder, previousStatus.getValue(), newStatus.getValue());
     }
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends emails to Brevo in batches instead of one POST per email.
+ *
+ * Queued emails are grouped into one request with a messageVersions entry per recipient,
+ * each carrying its own subject and HTML. A batch goes out when it reaches brevo.batch.max-size
+ * or brevo.batch.max-delay-ms after its first email was queued, whichever comes first, and at
+ * most brevo.batch.max-concurrency requests are in flight. Brevo accepts or rejects a batch as
+ * a whole, so a rejected batch is resent one email at a time to keep one bad address from
+ * failing the rest.
+ */
+@Component
+public class BrevoBatchSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrevoBatchSender.class);
+
+    private final RestTemplate restTemplate;
+    private final String apiUrl;
+    private final String apiKey;
+    private final String senderEmail;
+    private final String senderName;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final BlockingQueue<QueuedEmail> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService requests;
+    private final Thread batcher;
+    private volatile boolean running = true;
+
+    public BrevoBatchSender(RestTemplate restTemplate,
+                            @Value("${brevo.api.url:https://api.brevo.com/v3/smtp/email}") String apiUrl,
+                            @Value("${brevo.api.key}") String apiKey,
+                            @Value("${brevo.sender.email:ecommtest07@gmail.com}") String senderEmail,
+                            @Value("${brevo.sender.name:StopShop Ecommerce}") String senderName,
+                            @Value("${brevo.batch.max-size:50}") int maxBatchSize,
+                            @Value("${brevo.batch.max-delay-ms:200}") long maxDelayMillis,
+                            @Value("${brevo.batch.max-concurrency:4}") int maxConcurrency) {
+        this.restTemplate = restTemplate;
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+        this.senderEmail = senderEmail;
+        this.senderName = senderName;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+
+        int threads = Math.max(1, maxConcurrency);
+        AtomicInteger counter = new AtomicInteger();
+        // When every request slot is busy the batcher sends the batch itself, so it stops
+        // draining the queue and the next batches fill up instead of piling up as requests
+        this.requests = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "brevo-batch-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.batcher = new Thread(this::collectBatches, "brevo-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+    }
+
+    /**
+     * Queue one email. The future completes once Brevo has accepted the batch it went out
+     * in, or completes exceptionally with the reason it was rejected.
+     */
+    public CompletableFuture<Void> send(String to, String subject, String htmlContent) {
+        QueuedEmail email = new QueuedEmail(to, subject, htmlContent);
+        if (!running) {
+            email.result.completeExceptionally(new IllegalStateException("Email sender is shut down"));
+            return email.result;
+        }
+        queue.add(email);
+        return email.result;
+    }
+
+    private void collectBatches() {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedEmail first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<QueuedEmail> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    // Past the deadline, only take what is already queued
+                    QueuedEmail next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                requests.execute(() -> sendBatch(batch));
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Email batching failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void sendBatch(List<QueuedEmail> batch) {
+        try {
+            post(batch);
+            for (QueuedEmail email : batch) {
+                email.result.complete(null);
+            }
+            logger.debug("Sent a batch of {} emails", batch.size());
+        } catch (HttpClientErrorException.BadRequest e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            logger.warn("Brevo rejected a batch of {} emails, sending them one by one: {}", batch.size(), e.getMessage());
+            for (QueuedEmail email : batch) {
+                try {
+                    post(List.of(email));
+                    email.result.complete(null);
+                } catch (Exception single) {
+                    email.result.completeExceptionally(single);
+                }
+            }
+        } catch (Exception e) {
+            for (QueuedEmail email : batch) {
+                email.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void post(List<QueuedEmail> batch) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("api-key", apiKey);
+
+        Map<String, Object> emailData = new HashMap<>();
+        emailData.put("sender", Map.of("email", senderEmail, "name", senderName));
+
+        // The top-level subject and content are required; each version overrides them
+        QueuedEmail first = batch.get(0);
+        emailData.put("subject", first.subject);
+        emailData.put("htmlContent", first.htmlContent);
+        if (batch.size() == 1) {
+            emailData.put("to", List.of(Map.of("email", first.to)));
+        } else {
+            List<Map<String, Object>> versions = new ArrayList<>(batch.size());
+            for (QueuedEmail email : batch) {
+                Map<String, Object> version = new HashMap<>();
+                version.put("to", List.of(Map.of("email", email.to)));
+                version.put("subject", email.subject);
+                version.put("htmlContent", email.htmlContent);
+                versions.add(version);
+            }
+            emailData.put("messageVersions", versions);
+        }
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                apiUrl, HttpMethod.POST, new HttpEntity<>(emailData, headers), String.class);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new RuntimeException("Brevo returned " + response.getStatusCode() + ": " + response.getBody());
+        }
+    }
+
+    // Send what is still queued, then stop
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        batcher.join(TimeUnit.SECONDS.toMillis(10));
+        requests.shutdown();
+        if (!requests.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Email batches still in flight at shutdown");
+        }
+    }
+
+    private static final class QueuedEmail {
+        private final String to;
+        private final String subject;
+        private final String htmlContent;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        QueuedEmail(String to, String subject, String htmlContent) {
+            this.to = to;
+            this.subject = subject;
+            this.htmlContent = htmlContent;
+        }
+    }
+}
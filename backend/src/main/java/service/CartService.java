@@ -1,27 +1,47 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.CartItemDto;
+import com.example.demo.dto.CartOperationDto;
 import com.example.demo.model.CartItem;
 import com.example.demo.model.User;
 import com.example.demo.repository.CartItemRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.security.CustomUserDetails;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class CartService {
 
+    public static final int MAX_BATCH_OPERATIONS = 100;
+
+    // Statements used by applyBatch; each run of same-type operations is sent as one JDBC batch
+    private static final String BATCH_UPSERT_SQL =
+            "INSERT INTO cart_items (user_id, product_id, product_name, product_image, color, price, quantity, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, now()) " +
+            "ON CONFLICT (user_id, product_id, color) DO UPDATE SET " +
+            "quantity = cart_items.quantity + EXCLUDED.quantity, price = EXCLUDED.price, " +
+            "product_name = EXCLUDED.product_name, product_image = EXCLUDED.product_image, updated_at = now()";
+    private static final String BATCH_UPDATE_SQL = "UPDATE cart_items SET quantity = ?, updated_at = now() WHERE id = ? AND user_id = ?";
+    private static final String BATCH_DELETE_SQL = "DELETE FROM cart_items WHERE id = ? AND user_id = ?";
+
     private final CartItemRepository cartItemRepository;
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final CartWriteBehindCache cartCache;
+    private final CartVersionTracker cartVersions;
 
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -33,30 +53,19 @@ public class CartService {
             throw new RuntimeException("No authentication found");
         }
 
-        // Try to get User from CustomUserDetails first
-        if (auth.getPrincipal() instanceof CustomUserDetails) {
-            CustomUserDetails userDetails = (CustomUserDetails) auth.getPrincipal();
-            User user = userDetails.getUser();
-            System.out.println("✅ Got user from CustomUserDetails: " + user.getEmail());
-            return user;
+        // The JWT filter already loaded the user into the principal; no second lookup
+        if (!(auth.getPrincipal() instanceof CustomUserDetails)) {
+            throw new RuntimeException("Unsupported authentication principal");
         }
 
-        // Fallback: find by email
-        String email = auth.getName();
-        System.out.println("🔍 Looking up user by email: " + email);
-
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> {
-                    System.out.println("❌ User not found with email: " + email);
-                    return new RuntimeException("User not found with email: " + email);
-                });
-
-        System.out.println("✅ Found user: " + user.getEmail() + " with ID: " + user.getId());
+        User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        System.out.println("✅ Got user from CustomUserDetails: " + user.getEmail());
         return user;
     }
 
     // Convert CartItem entity to DTO - FIXED VERSION (removed created_at)
-    private CartItemDto convertToDto(CartItem cartItem) {
+    // The owner comes from the caller, so the lazy user association isn't touched
+    private CartItemDto convertToDto(CartItem cartItem, User owner) {
         if (cartItem == null) {
             return null;
         }
@@ -71,9 +80,9 @@ public class CartService {
         dto.setPrice(cartItem.getPrice());
         // Removed: dto.setCreatedAt(cartItem.getCreatedAt());
 
-        if (cartItem.getUser() != null) {
-            dto.setUserId(cartItem.getUser().getId());
-            dto.setUserEmail(cartItem.getUser().getEmail());
+        if (owner != null) {
+            dto.setUserId(owner.getId());
+            dto.setUserEmail(owner.getEmail());
         }
 
         return dto;
@@ -85,12 +94,11 @@ public class CartService {
             User user = getCurrentUser();
             System.out.println("👤 Getting cart for user: " + user.getEmail() + " (ID: " + user.getId() + ")");
 
-            List<CartItem> cartItems = cartItemRepository.findByUser(user);
+            List<CartItemDto> cartItems = cartCache.isEnabled() ? loadCachedCart(user.getId())
+                    : cartItemRepository.findCartItemDtosByUserId(user.getId());
             System.out.println("📦 Found " + cartItems.size() + " items in cart");
 
-            return cartItems.stream()
-                    .map(this::convertToDto)
-                    .collect(Collectors.toList());
+            return cartItems;
         } catch (Exception e) {
             System.out.println("❌ Error getting cart: " + e.getMessage());
             e.printStackTrace();
@@ -120,38 +128,17 @@ public class CartService {
                 throw new RuntimeException("Price cannot be negative");
             }
 
-            // Check if item already exists in cart
-            CartItem cartItem = cartItemRepository.findByUserAndProductIdAndColor(user, productId, color)
-                    .map(existing -> {
-                        System.out.println("📦 Found existing cart item with ID: " + existing.getId());
-                        System.out.println("📦 Updating quantity from " + existing.getQuantity() + " to " + (existing.getQuantity() + quantity));
-                        existing.setQuantity(existing.getQuantity() + quantity);
-                        existing.setPrice(price);
-                        existing.setProductName(productName);
-                        existing.setProductImage(productImage);
-                        return cartItemRepository.save(existing);
-                    })
-                    .orElseGet(() -> {
-                        System.out.println("📦 Creating new cart item");
-                        CartItem newItem = new CartItem();
-                        newItem.setUser(user);
-                        newItem.setProductId(productId);
-                        newItem.setProductName(productName);
-                        newItem.setProductImage(productImage);
-                        newItem.setColor(color);
-                        newItem.setQuantity(quantity);
-                        newItem.setPrice(price);
-                        return cartItemRepository.save(newItem);
-                    });
-
-            System.out.println("✅ Cart item saved with ID: " + cartItem.getId());
+            // Pending in-memory quantity changes must reach the row before it is incremented
+            cartCache.flush(user.getId());
 
-            // Verify the save was successful
-            CartItem savedItem = cartItemRepository.findById(cartItem.getId())
-                    .orElseThrow(() -> new RuntimeException("Failed to save cart item"));
+            // Insert or increment in one round trip; the unique (user, product, color) key makes this safe under concurrency
+            CartItem cartItem = cartItemRepository.upsertCartItem(
+                    user.getId(), productId, productName, productImage, color, price, quantity);
+            cartCache.invalidate(user.getId());
+            cartVersions.bump(user.getId());
 
-            System.out.println("✅ Verified cart item exists in database");
-            return convertToDto(savedItem);
+            System.out.println("✅ Cart item saved with ID: " + cartItem.getId() + ", quantity: " + cartItem.getQuantity());
+            return convertToDto(cartItem, user);
 
         } catch (Exception e) {
             System.out.println("❌ Error adding to cart: " + e.getMessage());
@@ -165,25 +152,27 @@ public class CartService {
             User currentUser = getCurrentUser();
             System.out.println("🗑️ Removing cart item with ID: " + cartItemId + " for user: " + currentUser.getEmail());
 
-            CartItem cartItem = cartItemRepository.findById(cartItemId)
-                    .orElseThrow(() -> {
-                        System.out.println("❌ Cart item not found with ID: " + cartItemId);
-                        return new RuntimeException("Cart item not found");
-                    });
-
-            if (!cartItem.getUser().getId().equals(currentUser.getId())) {
-                System.out.println("❌ Unauthorized access attempt - cart item belongs to different user");
-                throw new RuntimeException("Unauthorized: Cart item belongs to different user");
+            // With the write-behind cache the removal is recorded in memory and flushed later
+            if (cartCache.isEnabled()) {
+                if (!cartCache.remove(currentUser.getId(), cartItemId)) {
+                    loadCachedCart(currentUser.getId());
+                    if (!cartCache.remove(currentUser.getId(), cartItemId)) {
+                        throw new RuntimeException("Cart item not found");
+                    }
+                }
+                cartVersions.bump(currentUser.getId());
+                System.out.println("✅ Cart item removed, write pending");
+                return;
             }
 
-            System.out.println("✅ Cart item found and ownership verified. Deleting...");
-            cartItemRepository.delete(cartItem);
-
-            if (cartItemRepository.existsById(cartItemId)) {
-                System.out.println("❌ Cart item still exists after deletion attempt");
-                throw new RuntimeException("Failed to delete cart item from database");
+            // Ownership is part of the WHERE clause, so a foreign item simply matches no row
+            int deleted = cartItemRepository.deleteByIdAndUserId(cartItemId, currentUser.getId());
+            if (deleted == 0) {
+                System.out.println("❌ Cart item not found with ID: " + cartItemId + " for user: " + currentUser.getEmail());
+                throw new RuntimeException("Cart item not found");
             }
 
+            cartVersions.bump(currentUser.getId());
             System.out.println("✅ Cart item deleted successfully");
 
         } catch (Exception e) {
@@ -203,34 +192,29 @@ public class CartService {
                 throw new RuntimeException("Quantity must be greater than 0");
             }
 
-            CartItem cartItem = cartItemRepository.findById(cartItemId)
+            if (cartCache.isEnabled()) {
+                CartItemDto cachedItem = cartCache.updateQuantity(currentUser.getId(), cartItemId, newQuantity);
+                if (cachedItem == null) {
+                    loadCachedCart(currentUser.getId());
+                    cachedItem = cartCache.updateQuantity(currentUser.getId(), cartItemId, newQuantity);
+                }
+                if (cachedItem != null) {
+                    cartVersions.bump(currentUser.getId());
+                    System.out.println("✅ Cart item quantity updated, write pending");
+                    return cachedItem;
+                }
+            }
+
+            // Single UPDATE ... RETURNING with the ownership check in the WHERE clause
+            CartItem updatedItem = cartItemRepository.updateQuantityForUser(cartItemId, currentUser.getId(), newQuantity)
                     .orElseThrow(() -> {
-                        System.out.println("❌ Cart item not found with ID: " + cartItemId);
+                        System.out.println("❌ Cart item not found with ID: " + cartItemId + " for user: " + currentUser.getEmail());
                         return new RuntimeException("Cart item not found");
                     });
 
-            if (!cartItem.getUser().getId().equals(currentUser.getId())) {
-                System.out.println("❌ Unauthorized access attempt - cart item belongs to different user");
-                throw new RuntimeException("Unauthorized: Cart item belongs to different user");
-            }
-
-            System.out.println("✅ Cart item found and ownership verified. Updating quantity from " +
-                    cartItem.getQuantity() + " to " + newQuantity);
-
-            cartItem.setQuantity(newQuantity);
-            CartItem updatedCartItem = cartItemRepository.save(cartItem);
-
+            cartVersions.bump(currentUser.getId());
             System.out.println("✅ Cart item quantity updated successfully");
-
-            CartItem verifiedItem = cartItemRepository.findById(cartItemId)
-                    .orElseThrow(() -> new RuntimeException("Cart item lost after update"));
-
-            if (verifiedItem.getQuantity() != newQuantity) {
-                System.out.println("❌ Quantity update verification failed");
-                throw new RuntimeException("Failed to update quantity in database");
-            }
-
-            return convertToDto(verifiedItem);
+            return convertToDto(updatedItem, currentUser);
 
         } catch (Exception e) {
             System.out.println("❌ Error updating cart item quantity: " + e.getMessage());
@@ -244,11 +228,10 @@ public class CartService {
             User user = getCurrentUser();
             System.out.println("🗑️ Clearing cart for user: " + user.getEmail() + " (ID: " + user.getId() + ")");
 
-            List<CartItem> userCartItems = cartItemRepository.findByUser(user);
-            System.out.println("🗑️ Found " + userCartItems.size() + " items to delete");
-
-            cartItemRepository.deleteAll(userCartItems);
-            System.out.println("✅ Cart cleared successfully");
+            int deleted = cartItemRepository.deleteAllByUserId(user.getId());
+            cartCache.cleared(user.getId());
+            cartVersions.bump(user.getId());
+            System.out.println("✅ Cart cleared successfully, " + deleted + " items deleted");
 
         } catch (Exception e) {
             System.out.println("❌ Error clearing cart: " + e.getMessage());
@@ -260,16 +243,14 @@ public class CartService {
     @Transactional
     public void clearCartForUser(String email) {
         try {
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
-
-            System.out.println("🗑️ Clearing cart for user: " + user.getEmail() + " (ID: " + user.getId() + ")");
+            System.out.println("🗑️ Clearing cart for user: " + email);
 
-            List<CartItem> userCartItems = cartItemRepository.findByUser(user);
-            System.out.println("🗑️ Found " + userCartItems.size() + " items to delete");
-
-            cartItemRepository.deleteAll(userCartItems);
-            System.out.println("✅ Cart cleared successfully for user: " + email);
+            int deleted = cartItemRepository.deleteAllByUserEmail(email);
+            userRepository.findByEmail(email).ifPresent(user -> {
+                cartCache.cleared(user.getId());
+                cartVersions.bump(user.getId());
+            });
+            System.out.println("✅ Cart cleared successfully for user: " + email + ", " + deleted + " items deleted");
 
         } catch (Exception e) {
             System.out.println("❌ Error clearing cart for user " + email + ": " + e.getMessage());
@@ -278,15 +259,179 @@ public class CartService {
         }
     }
 
+    // Changes with every cart mutation; answered from memory, without a transaction or query
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long getCartVersion() {
+        return cartVersions.current(getCurrentUser().getId());
+    }
+
     @Transactional(readOnly = true)
     public int getCartItemCount() {
         try {
             User user = getCurrentUser();
-            List<CartItem> cartItems = cartItemRepository.findByUser(user);
-            return cartItems.stream().mapToInt(CartItem::getQuantity).sum();
+            List<CartItemDto> cachedItems = cartCache.isEnabled() ? cartCache.getCart(user.getId()) : null;
+            if (cachedItems != null) {
+                return cachedItems.stream().mapToInt(CartItemDto::getQuantity).sum();
+            }
+            return (int) cartItemRepository.sumQuantityByUserId(user.getId());
         } catch (Exception e) {
             System.out.println("❌ Error getting cart count: " + e.getMessage());
             return 0;
         }
     }
-}
\ No newline at end of file
+
+    // Checkout deleted the user's cart rows in its own statement; drop the cached copy to match
+    // once that commits (both calls defer to after commit inside the checkout transaction)
+    public void cartCheckedOut(Long userId) {
+        cartCache.cleared(userId);
+        cartVersions.bump(userId);
+    }
+
+    // Write this user's pending in-memory cart changes, e.g. before checkout reads the cart
+    public void flushPendingChanges(Long userId) {
+        cartCache.flush(userId);
+    }
+
+    private List<CartItemDto> loadCachedCart(Long userId) {
+        List<CartItemDto> cachedItems = cartCache.getCart(userId);
+        if (cachedItems != null) {
+            return cachedItems;
+        }
+        return cartCache.fill(userId, cartItemRepository.findCartItemDtosByUserId(userId));
+    }
+
+    // Apply add/update/remove operations in order, in one transaction; any failure rolls back the whole batch
+    public List<CartItemDto> applyBatch(List<CartOperationDto> operations) {
+        try {
+            User user = getCurrentUser();
+            System.out.println("🛒 Applying " + operations.size() + " cart operations for user: " + user.getEmail());
+
+            for (int i = 0; i < operations.size(); i++) {
+                normalizeOperation(operations.get(i), i);
+            }
+
+            cartCache.flush(user.getId());
+
+            // Consecutive operations of the same type share one batched statement, which keeps the original order
+            int start = 0;
+            while (start < operations.size()) {
+                String op = operations.get(start).getOp();
+                int end = start + 1;
+                while (end < operations.size() && operations.get(end).getOp().equals(op)) {
+                    end++;
+                }
+                executeBatchRun(op, operations.subList(start, end), start, user.getId());
+                start = end;
+            }
+
+            System.out.println("✅ Cart batch applied successfully");
+            cartCache.invalidate(user.getId());
+            cartVersions.bump(user.getId());
+            return cartItemRepository.findCartItemDtosByUserId(user.getId());
+
+        } catch (Exception e) {
+            System.out.println("❌ Error applying cart batch: " + e.getMessage());
+            throw new RuntimeException("Failed to apply cart changes: " + e.getMessage());
+        }
+    }
+
+    private void executeBatchRun(String op, List<CartOperationDto> run, int offset, Long userId) {
+        if (op.equals("add")) {
+            run = mergeDuplicateAdds(run);
+        }
+
+        List<Object[]> args = new ArrayList<>(run.size());
+        for (CartOperationDto operation : run) {
+            switch (op) {
+                case "add" -> args.add(new Object[]{userId, operation.getProductId(), operation.getProductName(),
+                        operation.getProductImage(), operation.getColor(), operation.getPrice(), operation.getQuantity()});
+                case "update" -> args.add(new Object[]{operation.getQuantity(), operation.getCartItemId(), userId});
+                default -> args.add(new Object[]{operation.getCartItemId(), userId});
+            }
+        }
+
+        String sql = op.equals("add") ? BATCH_UPSERT_SQL : op.equals("update") ? BATCH_UPDATE_SQL : BATCH_DELETE_SQL;
+        int[] counts = jdbcTemplate.batchUpdate(sql, args);
+
+        if (!op.equals("add")) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    throw new RuntimeException("Operation " + (offset + i) + ": cart item not found: " + run.get(i).getCartItemId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Combine adds of the same product variant into one, with the quantities summed and the
+     * last price, name and image, the same result as applying them one after another. The
+     * driver rewrites a run into one multi-row INSERT ... ON CONFLICT, which Postgres rejects
+     * if two of its rows hit the same cart line.
+     */
+    private List<CartOperationDto> mergeDuplicateAdds(List<CartOperationDto> run) {
+        Map<String, CartOperationDto> merged = new LinkedHashMap<>();
+        for (CartOperationDto operation : run) {
+            String line = operation.getProductId() + "|" + operation.getColor();
+            CartOperationDto previous = merged.get(line);
+            if (previous == null) {
+                merged.put(line, operation);
+            } else {
+                merged.put(line, new CartOperationDto("add", null, operation.getProductId(), operation.getProductName(),
+                        operation.getProductImage(), operation.getColor(), operation.getPrice(),
+                        previous.getQuantity() + operation.getQuantity()));
+            }
+        }
+        return merged.size() == run.size() ? run : new ArrayList<>(merged.values());
+    }
+
+    // Validate one operation and fill in the same defaults as the single-item endpoints
+    private void normalizeOperation(CartOperationDto operation, int index) {
+        if (operation == null || operation.getOp() == null) {
+            throw new RuntimeException("Operation " + index + ": missing op");
+        }
+        String op = operation.getOp().trim().toLowerCase();
+        operation.setOp(op);
+
+        switch (op) {
+            case "add" -> {
+                operation.setProductId(toProductId(operation.getProductId(), index));
+                if (operation.getColor() == null || operation.getColor().trim().isEmpty()) {
+                    throw new RuntimeException("Operation " + index + ": color cannot be null or empty");
+                }
+                if (operation.getPrice() == null) {
+                    operation.setPrice(100.0);
+                } else if (operation.getPrice() < 0) {
+                    throw new RuntimeException("Operation " + index + ": price cannot be negative");
+                }
+                if (operation.getProductName() == null || operation.getProductName().trim().isEmpty()) {
+                    operation.setProductName("Product " + operation.getProductId());
+                }
+                if (operation.getProductImage() == null || operation.getProductImage().trim().isEmpty()) {
+                    operation.setProductImage("default-product.jpg");
+                }
+            }
+            case "update", "remove" -> {
+                if (operation.getCartItemId() == null) {
+                    throw new RuntimeException("Operation " + index + ": cartItemId is required");
+                }
+            }
+            default -> throw new RuntimeException("Operation " + index + ": unknown op '" + op + "'");
+        }
+
+        if (!op.equals("remove") && (operation.getQuantity() == null || operation.getQuantity() <= 0)) {
+            throw new RuntimeException("Operation " + index + ": quantity must be greater than 0");
+        }
+    }
+
+    // Same conversion as POST /api/cart/add: numeric ids as-is, other string ids hashed to a positive long
+    private Long toProductId(Object productId, int index) {
+        if (productId instanceof Number) {
+            return ((Number) productId).longValue();
+        }
+        if (productId instanceof String) {
+            String productIdStr = (String) productId;
+            return productIdStr.matches("\\d+") ? Long.parseLong(productIdStr) : Math.abs((long) productIdStr.hashCode());
+        }
+        throw new RuntimeException("Operation " + index + ": invalid productId");
+    }
+}
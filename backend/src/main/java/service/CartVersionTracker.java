@@ -0,0 +1,79 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user cart version, used as the ETag of GET /api/cart/my.
+ *
+ * Versions are drawn from one counter seeded with the start time, so a user without a
+ * tracked version (after a restart or an eviction) always gets a value no client has seen,
+ * which costs at most one full response. The number of tracked users is capped.
+ *
+ * Versions live only in this JVM, so the tracker assumes a single backend instance: behind a
+ * load balancer another instance would not see a write and could answer 304 with a stale cart.
+ * It is not derived from cart_items.updated_at because the write-behind cache holds changes the
+ * table has not seen yet.
+ */
+@Component
+public class CartVersionTracker {
+
+    private final AtomicLong counter = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final int maxUsers;
+
+    public CartVersionTracker(@Value("${cart.version.max-users:50000}") int maxUsers) {
+        this.maxUsers = Math.max(1, maxUsers);
+    }
+
+    public long current(Long userId) {
+        Long version = versions.get(userId);
+        if (version != null) {
+            return version;
+        }
+        evictIfFull();
+        return versions.computeIfAbsent(userId, id -> counter.incrementAndGet());
+    }
+
+    /**
+     * Record a change to the user's cart. Inside a transaction the version moves once the
+     * change has committed, so a client can't pair the new version with the old contents.
+     */
+    public void bump(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance(userId);
+                }
+            });
+        } else {
+            advance(userId);
+        }
+    }
+
+    private void advance(Long userId) {
+        evictIfFull();
+        versions.put(userId, counter.incrementAndGet());
+    }
+
+    // Forgetting a version is safe: the next lookup hands out a fresh one
+    private void evictIfFull() {
+        if (versions.size() < maxUsers) {
+            return;
+        }
+        int target = maxUsers - Math.max(1, maxUsers / 4);
+        Iterator<Long> iterator = versions.keySet().iterator();
+        while (versions.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CartItemDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional write-behind layer for cart quantity changes and removals (cart.write-behind.enabled).
+ *
+ * Each user's cart is held in one of a fixed number of locked LRU segments together with the
+ * quantity changes not yet written to cart_items. Repeated changes to the same item collapse
+ * into one pending write, and pending writes are flushed as JDBC batches on a schedule, before
+ * any direct database write to the same cart, at checkout and on graceful shutdown.
+ * Carts with unflushed changes are never evicted. The cache assumes a single backend instance.
+ */
+@Component
+public class CartWriteBehindCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteBehindCache.class);
+
+    private static final int SEGMENTS = 16;
+    private static final int REMOVED = 0; // pending quantity that marks a removed item
+    private static final long FLUSH_WAIT_SECONDS = 30;
+
+    private static final String FLUSH_UPDATE_SQL = "UPDATE cart_items SET quantity = ?, updated_at = now() WHERE id = ? AND user_id = ?";
+    private static final String FLUSH_DELETE_SQL = "DELETE FROM cart_items WHERE id = ? AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int flushBatchSize;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public CartWriteBehindCache(JdbcTemplate jdbcTemplate,
+                                @Value("${cart.write-behind.enabled:false}") boolean enabled,
+                                @Value("${cart.write-behind.max-users:5000}") int maxUsers,
+                                @Value("${cart.write-behind.flush-batch-size:200}") int flushBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+        int perSegment = Math.max(1, maxUsers / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Copy of the cached cart, or null if it has to be loaded from the database
+    public List<CartItemDto> getCart(Long userId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            UserCart cart = segment.get(userId);
+            if (cart == null || cart.items == null) {
+                return null;
+            }
+            List<CartItemDto> items = new ArrayList<>(cart.items.size());
+            for (CartItemDto item : cart.items.values()) {
+                items.add(copy(item));
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Cache a cart just read from the database. Changes still waiting to be written
+     * are applied on top, so a load that races with a mutation doesn't lose it.
+     */
+    public List<CartItemDto> fill(Long userId, List<CartItemDto> loaded) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            UserCart cart = segment.get(userId);
+            if (cart == null) {
+                cart = new UserCart(userId);
+                segment.put(userId, cart);
+                segment.evictClean();
+            }
+
+            Map<Long, CartItemDto> items = new LinkedHashMap<>();
+            for (CartItemDto item : loaded) {
+                items.put(item.getId(), copy(item));
+            }
+            overlay(items, cart.inFlight);
+            overlay(items, cart.pending);
+            cart.items = items;
+
+            List<CartItemDto> result = new ArrayList<>(items.size());
+            for (CartItemDto item : items.values()) {
+                result.add(copy(item));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Change an item's quantity in memory.
+     *
+     * @return the updated item, or null if the cart isn't cached
+     */
+    public CartItemDto updateQuantity(Long userId, Long cartItemId, int quantity) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            UserCart cart = segment.get(userId);
+            if (cart == null || cart.items == null) {
+                return null;
+            }
+            CartItemDto item = cart.items.get(cartItemId);
+            if (item == null) {
+                throw new RuntimeException("Cart item not found");
+            }
+            item.setQuantity(quantity);
+            cart.pending.put(cartItemId, quantity);
+            return copy(item);
+        }
+    }
+
+    /**
+     * Remove an item in memory.
+     *
+     * @return false if the cart isn't cached
+     */
+    public boolean remove(Long userId, Long cartItemId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            UserCart cart = segment.get(userId);
+            if (cart == null || cart.items == null) {
+                return false;
+            }
+            if (cart.items.remove(cartItemId) == null) {
+                throw new RuntimeException("Cart item not found");
+            }
+            cart.pending.put(cartItemId, REMOVED);
+            return true;
+        }
+    }
+
+    // The database copy changed underneath the cache; reload on next read but keep unflushed changes
+    public void invalidate(Long userId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            UserCart cart = segment.get(userId);
+            if (cart != null) {
+                cart.items = null;
+            }
+        }
+    }
+
+    /**
+     * The cart was emptied in the database, so pending changes no longer matter. Inside a
+     * transaction the cached copy is emptied once the delete has committed, so a rollback
+     * leaves the cache matching the cart that is still there.
+     */
+    public void cleared(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearCached(userId);
+                }
+            });
+        } else {
+            clearCached(userId);
+        }
+    }
+
+    private void clearCached(Long userId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            UserCart cart = segment.get(userId);
+            if (cart != null) {
+                cart.items = new LinkedHashMap<>();
+                cart.pending.clear();
+            }
+        }
+    }
+
+    /**
+     * Write one user's pending changes. Runs in the caller's transaction when there is one,
+     * so it must be called before any other write to the same cart in that transaction.
+     *
+     * When a write of this cart is already running (a scheduled flush, or another request's
+     * transaction), this waits for it to finish and then writes what is still pending, so
+     * on return every change made before the call is in the database, and an older absolute
+     * quantity can't land after the caller's own write.
+     */
+    public void flush(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        Segment segment = segmentFor(userId);
+        while (true) {
+            UserCart cart;
+            CompletableFuture<Void> running;
+            Map<Long, Integer> sameTransaction = null;
+            synchronized (segment) {
+                cart = segment.get(userId);
+                if (cart == null) {
+                    return;
+                }
+                if (cart.startFlush()) {
+                    running = null;
+                } else if (cart.flushOwner == Thread.currentThread()) {
+                    // This thread's transaction wrote the in-flight changes already; waiting
+                    // for it to complete would deadlock, so write the newer changes alongside
+                    if (cart.pending.isEmpty()) {
+                        return;
+                    }
+                    sameTransaction = cart.pending;
+                    cart.pending = new HashMap<>();
+                    running = null;
+                } else if (cart.flushDone != null) {
+                    running = cart.flushDone;
+                } else {
+                    return;
+                }
+            }
+
+            if (sameTransaction != null) {
+                writeAlongside(cart, sameTransaction);
+                return;
+            }
+            if (running == null) {
+                write(List.of(cart));
+                return;
+            }
+            awaitFlush(running);
+        }
+    }
+
+    private void awaitFlush(CompletableFuture<Void> running) {
+        try {
+            running.get(FLUSH_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a cart write");
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out waiting for a running cart write");
+        } catch (ExecutionException e) {
+            // The write failed and its changes are pending again; the next pass retries them
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:2000}")
+    public void flushAll() {
+        if (!enabled) {
+            return;
+        }
+        List<UserCart> carts = new ArrayList<>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (UserCart cart : segment.values()) {
+                    if (cart.startFlush()) {
+                        carts.add(cart);
+                    }
+                }
+            }
+        }
+        if (!carts.isEmpty()) {
+            write(carts);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            logger.info("Flushing pending cart changes before shutdown");
+            flushAll();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int users = 0;
+        int pending = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                users += segment.size();
+                for (UserCart cart : segment.values()) {
+                    pending += cart.pending.size() + cart.inFlight.size();
+                }
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("cachedCarts", users);
+        stats.put("pendingWrites", pending);
+        return stats;
+    }
+
+    private void write(List<UserCart> carts) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (UserCart cart : carts) {
+            collect(cart.userId, cart.inFlight, updates, deletes);
+        }
+
+        try {
+            execute(updates, deletes);
+        } catch (RuntimeException e) {
+            logger.warn("Cart flush failed, {} changes will be retried: {}", updates.size() + deletes.size(), e.getMessage());
+            completeFlush(carts, false);
+            throw e;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completeFlush(carts, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            completeFlush(carts, true);
+        }
+        logger.debug("Flushed {} cart updates and {} removals for {} carts", updates.size(), deletes.size(), carts.size());
+    }
+
+    // Write more changes in the transaction that already has this cart's write in flight;
+    // they join the in-flight set, so that write's completion settles them too
+    private void writeAlongside(UserCart cart, Map<Long, Integer> changes) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        collect(cart.userId, changes, updates, deletes);
+
+        Segment segment = segmentFor(cart.userId);
+        try {
+            execute(updates, deletes);
+        } catch (RuntimeException e) {
+            synchronized (segment) {
+                for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                    cart.pending.putIfAbsent(change.getKey(), change.getValue());
+                }
+            }
+            throw e;
+        }
+        synchronized (segment) {
+            cart.inFlight.putAll(changes);
+        }
+    }
+
+    private static void collect(Long userId, Map<Long, Integer> changes, List<Object[]> updates, List<Object[]> deletes) {
+        for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+            if (change.getValue() == REMOVED) {
+                deletes.add(new Object[]{change.getKey(), userId});
+            } else {
+                updates.add(new Object[]{change.getValue(), change.getKey(), userId});
+            }
+        }
+    }
+
+    private void execute(List<Object[]> updates, List<Object[]> deletes) {
+        // Rows that were deleted in the meantime simply match nothing
+        for (int i = 0; i < updates.size(); i += flushBatchSize) {
+            jdbcTemplate.batchUpdate(FLUSH_UPDATE_SQL, updates.subList(i, Math.min(updates.size(), i + flushBatchSize)));
+        }
+        for (int i = 0; i < deletes.size(); i += flushBatchSize) {
+            jdbcTemplate.batchUpdate(FLUSH_DELETE_SQL, deletes.subList(i, Math.min(deletes.size(), i + flushBatchSize)));
+        }
+    }
+
+    private void completeFlush(List<UserCart> carts, boolean committed) {
+        for (UserCart cart : carts) {
+            CompletableFuture<Void> done;
+            Segment segment = segmentFor(cart.userId);
+            synchronized (segment) {
+                if (!committed) {
+                    // Newer changes made while the write was running take precedence
+                    for (Map.Entry<Long, Integer> change : cart.inFlight.entrySet()) {
+                        cart.pending.putIfAbsent(change.getKey(), change.getValue());
+                    }
+                }
+                cart.inFlight.clear();
+                done = cart.flushDone;
+                cart.flushDone = null;
+                cart.flushOwner = null;
+            }
+            // Wakes flush() callers waiting for this write; they then write what is pending
+            if (done != null) {
+                if (committed) {
+                    done.complete(null);
+                } else {
+                    done.completeExceptionally(new IllegalStateException("Cart write rolled back"));
+                }
+            }
+        }
+    }
+
+    private static void overlay(Map<Long, CartItemDto> items, Map<Long, Integer> changes) {
+        for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+            if (change.getValue() == REMOVED) {
+                items.remove(change.getKey());
+            } else {
+                CartItemDto item = items.get(change.getKey());
+                if (item != null) {
+                    item.setQuantity(change.getValue());
+                }
+            }
+        }
+    }
+
+    private static CartItemDto copy(CartItemDto item) {
+        return new CartItemDto(item.getId(), item.getProductId(), item.getProductName(), item.getProductImage(),
+                item.getColor(), item.getPrice(), item.getQuantity(), item.getUserId(), item.getUserEmail());
+    }
+
+    private Segment segmentFor(Long userId) {
+        int h = userId.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    // A user's cached cart plus its unflushed changes (cart item id -> new quantity, 0 = removed)
+    private static final class UserCart {
+        private final Long userId;
+        private Map<Long, CartItemDto> items; // null until loaded, or after the database copy changed
+        private Map<Long, Integer> pending = new HashMap<>();
+        private Map<Long, Integer> inFlight = new HashMap<>();
+        private CompletableFuture<Void> flushDone; // completes when the in-flight write is settled
+        private Thread flushOwner; // thread whose write (and transaction) the in-flight changes belong to
+
+        UserCart(Long userId) {
+            this.userId = userId;
+        }
+
+        // Move pending changes to in-flight; false if there is nothing to write or a write is already running
+        boolean startFlush() {
+            if (pending.isEmpty() || !inFlight.isEmpty()) {
+                return false;
+            }
+            Map<Long, Integer> swap = inFlight;
+            inFlight = pending;
+            pending = swap;
+            flushDone = new CompletableFuture<>();
+            flushOwner = Thread.currentThread();
+            return true;
+        }
+
+        boolean isDirty() {
+            return !pending.isEmpty() || !inFlight.isEmpty();
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Long, UserCart> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        // Drop least recently used carts over capacity; carts with unflushed changes stay until flushed
+        void evictClean() {
+            Iterator<UserCart> iterator = values().iterator();
+            while (size() > capacity && iterator.hasNext()) {
+                if (!iterator.next().isDirty()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,12 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.ChatResponse;
-import com.example.demo.model.Order;
+import com.example.demo.dto.OrderSummaryDto;
 import com.example.demo.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.format.DateTimeFormatter;
@@ -17,6 +18,7 @@ import java.util.stream.Collectors;
 public class ChatBotService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatBotService.class);
+    private static final int RECENT_ORDER_LIMIT = 5;
 
     @Autowired
     private ProductService productService;
@@ -24,6 +26,12 @@ public class ChatBotService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private ChatContextStore chatContextStore;
+
+    @Autowired
+    private ChatQueryAnalytics chatQueryAnalytics;
+
     // Enhanced keyword patterns for better intent recognition
     private final List<String> greetings = Arrays.asList("hello", "hi", "hey", "good morning", "good evening", "start", "hai");
     private final List<String> orderQueries = Arrays.asList("order", "orders", "my order", "purchase", "bought", "history", "my orders", "order history", "my purchases");
@@ -74,6 +82,45 @@ public class ChatBotService {
             "items", "item", "things", "stuff", "latest"
     ));
 
+    // Follow-up patterns that refer to the previous product results of a session
+    private final Pattern ORDINAL_REFERENCE_PATTERN = Pattern.compile(
+            "(?i)\\b(first|second|third|fourth|fifth|sixth|seventh|eighth|ninth|tenth|last|1st|2nd|3rd|[4-9]th|10th)\\s+(one|product|item)\\b"
+    );
+
+    private final Pattern CHEAPER_PATTERN = Pattern.compile(
+            "(?i)\\b(cheaper|cheapest|less\\s+expensive|lower\\s+price)\\b"
+    );
+
+    private final Pattern PRICIER_PATTERN = Pattern.compile(
+            "(?i)\\b(pricier|more\\s+expensive|higher\\s+price)\\b"
+    );
+
+    private final List<String> ordinalWords = Arrays.asList(
+            "first", "second", "third", "fourth", "fifth", "sixth", "seventh", "eighth", "ninth", "tenth");
+
+    // Words a follow-up may use besides stop words; any other word is a new search term
+    private final Set<String> followUpWords = new HashSet<>(Arrays.asList(
+            "first", "second", "third", "fourth", "fifth", "sixth", "seventh", "eighth", "ninth", "tenth",
+            "last", "one", "ones", "option", "options", "cheaper", "cheapest", "less", "expensive", "lower",
+            "pricier", "more", "higher", "please", "see", "that", "this", "those", "these", "them", "which",
+            "how", "was", "like", "instead", "other", "only", "there", "again"
+    ));
+
+    private final Pattern ORDINAL_TOKEN_PATTERN = Pattern.compile("\\d+(st|nd|rd|th)");
+
+    public ChatResponse processMessage(String message, Long userId, String sessionId) {
+        String session = chatContextStore.resolveSessionId(sessionId);
+
+        ChatResponse response = handleFollowUp(message.toLowerCase().trim(), session);
+        if (response == null) {
+            response = processMessage(message, userId);
+            rememberResults(session, response);
+        }
+
+        response.setSessionId(session);
+        return response;
+    }
+
     public ChatResponse processMessage(String message, Long userId) {
         try {
             logger.info("Processing message: '{}' for user: {}", message, userId);
@@ -158,6 +205,179 @@ public class ChatBotService {
         }
     }
 
+    // Answer "the second one" / "cheaper ones" from the last results of the session
+    private ChatResponse handleFollowUp(String lowerMessage, String sessionId) {
+        ChatContextStore.Context context = chatContextStore.get(sessionId);
+        if (context == null) {
+            return null;
+        }
+
+        FollowUp followUp = parseFollowUp(lowerMessage);
+        if (followUp == null) {
+            return null;
+        }
+        boolean cheaper = followUp.isCheaper();
+
+        List<Map<String, Object>> previous = productService.fromOrdinals(
+                context.getProductOrdinals(), context.getCatalogVersion());
+        if (previous == null || previous.isEmpty()) {
+            return new ChatResponse(
+                    "I don't have your previous results anymore. Tell me what you're looking for and I'll search again!",
+                    "text"
+            );
+        }
+
+        if (followUp.isSelection()) {
+            int position = followUp.positionIn(previous.size());
+            if (position < 0) {
+                return new ChatResponse(
+                        "I only showed you " + previous.size() + " product(s). Which one did you mean?",
+                        "text"
+                );
+            }
+
+            logger.info("Follow-up selected product {} of {} for session", position + 1, previous.size());
+            chatContextStore.put(sessionId, context.getProductOrdinals(), context.getCatalogVersion(), position);
+            return new ChatResponse(
+                    "Here's product #" + (position + 1) + " from your last results:",
+                    "product_list",
+                    List.of((Object) previous.get(position))
+            );
+        }
+
+        // Compare against the selected product if there is one, otherwise re-sort the whole set
+        Double referencePrice = context.getSelected() >= 0 && context.getSelected() < previous.size()
+                ? productService.getProductPrice(previous.get(context.getSelected()))
+                : null;
+
+        Comparator<Map<String, Object>> byPrice = Comparator.comparingDouble(p -> {
+            Double price = productService.getProductPrice(p);
+            return price != null ? price : Double.MAX_VALUE;
+        });
+
+        List<Map<String, Object>> results = previous.stream()
+                .filter(p -> {
+                    if (referencePrice == null) {
+                        return true;
+                    }
+                    Double price = productService.getProductPrice(p);
+                    return price != null && (cheaper ? price < referencePrice : price > referencePrice);
+                })
+                .sorted(cheaper ? byPrice : byPrice.reversed())
+                .collect(Collectors.toList());
+
+        if (results.isEmpty()) {
+            return new ChatResponse(
+                    cheaper ? "That's already the cheapest option in your last results."
+                            : "That's already the most expensive option in your last results.",
+                    "text"
+            );
+        }
+
+        ChatResponse response = new ChatResponse(
+                cheaper ? "Here are your results from the lowest price:" : "Here are your results from the highest price:",
+                "product_list",
+                results.stream().map(p -> (Object) p).collect(Collectors.toList())
+        );
+        rememberResults(sessionId, response);
+        return response;
+    }
+
+    /**
+     * Read a message as a follow-up to the previous results ("the second one", "cheaper ones"),
+     * or return null. A message that also asks for something new, like an order, a category or
+     * another search term ("show me cheaper laptops"), is not a follow-up and gets a fresh answer.
+     */
+    FollowUp parseFollowUp(String lowerMessage) {
+        if (hasNewRequest(lowerMessage)) {
+            return null;
+        }
+
+        java.util.regex.Matcher ordinalMatcher = ORDINAL_REFERENCE_PATTERN.matcher(lowerMessage);
+        if (ordinalMatcher.find()) {
+            String word = ordinalMatcher.group(1).toLowerCase();
+            if (word.equals("last")) {
+                return FollowUp.select(FollowUp.LAST);
+            }
+            if (Character.isDigit(word.charAt(0))) {
+                return FollowUp.select(Integer.parseInt(word.replaceAll("\\D", "")) - 1);
+            }
+            return FollowUp.select(ordinalWords.indexOf(word));
+        }
+
+        if (CHEAPER_PATTERN.matcher(lowerMessage).find()) {
+            return FollowUp.byPrice(true);
+        }
+        if (PRICIER_PATTERN.matcher(lowerMessage).find()) {
+            return FollowUp.byPrice(false);
+        }
+        return null;
+    }
+
+    private boolean hasNewRequest(String lowerMessage) {
+        if (containsAny(lowerMessage, orderQueries)) {
+            return true;
+        }
+        for (String word : lowerMessage.split("[^a-z0-9]+")) {
+            if (categoryMap.containsKey(word)) {
+                return true;
+            }
+            if (word.length() > 2 && !ORDINAL_TOKEN_PATTERN.matcher(word).matches() && !stopWords.contains(word)
+                    && !isCommonWord(word) && !followUpWords.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A follow-up turn: pick a product of the previous results, or re-sort them by price
+    static final class FollowUp {
+        static final int LAST = Integer.MAX_VALUE;
+        private static final int BY_PRICE = Integer.MIN_VALUE;
+
+        private final int position; // zero-based, LAST, or BY_PRICE
+        private final boolean cheaper;
+
+        private FollowUp(int position, boolean cheaper) {
+            this.position = position;
+            this.cheaper = cheaper;
+        }
+
+        static FollowUp select(int position) {
+            return new FollowUp(position, false);
+        }
+
+        static FollowUp byPrice(boolean cheaper) {
+            return new FollowUp(BY_PRICE, cheaper);
+        }
+
+        boolean isSelection() {
+            return position != BY_PRICE;
+        }
+
+        boolean isCheaper() {
+            return cheaper;
+        }
+
+        // Zero-based position in results of the given size, or -1 if out of range
+        int positionIn(int size) {
+            int resolved = position == LAST ? size - 1 : position;
+            return resolved >= 0 && resolved < size ? resolved : -1;
+        }
+    }
+
+    // Keep the products of a product_list response as catalog ordinals for follow-up turns
+    private void rememberResults(String sessionId, ChatResponse response) {
+        if (!"product_list".equals(response.getType()) || response.getData() == null) {
+            return;
+        }
+
+        int[] ordinals = productService.toOrdinals(response.getData(), ChatContextStore.MAX_RESULTS);
+        if (ordinals.length > 0) {
+            chatContextStore.put(sessionId, ordinals, productService.getCatalogVersion(), -1);
+        }
+    }
+
     // Extract term from "show me X" pattern
     private String extractTermFromShowMe(String message) {
         Pattern pattern = Pattern.compile("(?i)^show\\s+me\\s+(\\w+)s?$");
@@ -334,8 +554,9 @@ public class ChatBotService {
 
     private ChatResponse searchProductsByTerm(String searchTerm) {
         try {
-            logger.info("Searching products for term: '{}'", searchTerm);
+            logger.debug("Searching products for term: '{}'", searchTerm);
             List<Map<String, Object>> products = productService.searchProducts(searchTerm);
+            chatQueryAnalytics.recordQuery(searchTerm, products.size());
 
             if (products.isEmpty()) {
                 // Get available categories for suggestions
@@ -366,36 +587,41 @@ public class ChatBotService {
     private ChatResponse handleOrderQuery(String message, Long userId) {
         try {
             logger.info("Handling order query for user: {}", userId);
-            List<Order> userOrders = orderRepository.findByUser_IdOrderByCreatedAtDesc(userId);
-
-            if (userOrders.isEmpty()) {
-                return new ChatResponse(
-                        "You don't have any orders yet. Start shopping to place your first order!",
-                        "text"
-                );
-            }
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
 
             if (message.contains("latest") || message.contains("recent") || message.contains("last")) {
-                Order latestOrder = userOrders.get(0);
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+                List<OrderSummaryDto> latest = orderRepository.findOrderSummariesByUserId(userId, PageRequest.of(0, 1));
+                if (latest.isEmpty()) {
+                    return getNoOrdersResponse();
+                }
+
+                OrderSummaryDto latestOrder = latest.get(0);
                 String formattedDate = latestOrder.getCreatedAt().format(formatter);
 
                 return new ChatResponse(
                         "Your latest order (#" + latestOrder.getId() + ") was placed on " +
                                 formattedDate + " with total amount $" + String.format("%.2f", latestOrder.getOrderTotal()) +
-                                ". Status: " + latestOrder.getStatus(),
+                                ". Status: " + latestOrder.getStatus().getValue(),
                         "order_info"
                 );
             }
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-            String latestOrderDate = userOrders.get(0).getCreatedAt().format(formatter);
+            List<OrderSummaryDto> recentOrders = orderRepository.findOrderSummariesByUserId(
+                    userId, PageRequest.of(0, RECENT_ORDER_LIMIT));
+            if (recentOrders.isEmpty()) {
+                return getNoOrdersResponse();
+            }
+
+            long orderCount = recentOrders.size() < RECENT_ORDER_LIMIT
+                    ? recentOrders.size()
+                    : orderRepository.countByUser_Id(userId);
+            String latestOrderDate = recentOrders.get(0).getCreatedAt().format(formatter);
 
             return new ChatResponse(
-                    "You have " + userOrders.size() + " order(s). Your latest order was placed on " +
-                            latestOrderDate + " for $" + String.format("%.2f", userOrders.get(0).getOrderTotal()),
+                    "You have " + orderCount + " order(s). Your latest order was placed on " +
+                            latestOrderDate + " for $" + String.format("%.2f", recentOrders.get(0).getOrderTotal()),
                     "order_list",
-                    userOrders.stream().limit(5).map(o -> (Object) o).collect(Collectors.toList())
+                    new ArrayList<>(recentOrders)
             );
         } catch (Exception e) {
             logger.error("Error handling order query: ", e);
@@ -403,11 +629,19 @@ public class ChatBotService {
         }
     }
 
+    private ChatResponse getNoOrdersResponse() {
+        return new ChatResponse(
+                "You don't have any orders yet. Start shopping to place your first order!",
+                "text"
+        );
+    }
+
     private ChatResponse handleCategoryQuery(String category) {
         try {
-            logger.info("Category query - handling category: '{}'", category);
+            logger.debug("Category query - handling category: '{}'", category);
 
             List<Map<String, Object>> categoryProducts = productService.getProductsByCategory(category);
+            chatQueryAnalytics.recordQuery(category, categoryProducts.size());
 
             if (categoryProducts.isEmpty()) {
                 List<String> availableCategories = new ArrayList<>(Arrays.asList("laptop", "mobile", "computer", "accessories", "electronics"));
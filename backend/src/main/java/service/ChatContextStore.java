@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-session conversation context for the chatbot.
+ *
+ * Sessions live in a fixed number of independently locked LRU segments, each capped at
+ * maxSessions / SEGMENTS entries, and expire after a period of inactivity. A context only
+ * holds the ordinals of the last product results, so the memory used per session is bounded.
+ */
+@Component
+public class ChatContextStore {
+
+    public static final int MAX_RESULTS = 10;
+
+    private static final int SEGMENTS = 16;
+    private static final int MAX_SESSION_ID_LENGTH = 64;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlMillis;
+
+    public ChatContextStore(@Value("${chat.context.max-sessions:10000}") int maxSessions,
+                            @Value("${chat.context.ttl-minutes:30}") long ttlMinutes) {
+        int perSegment = Math.max(1, maxSessions / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.ttlMillis = ttlMinutes * 60 * 1000;
+    }
+
+    // Keep a usable client session id, or issue a new one
+    public String resolveSessionId(String sessionId) {
+        if (sessionId == null || sessionId.isBlank() || sessionId.length() > MAX_SESSION_ID_LENGTH) {
+            return UUID.randomUUID().toString();
+        }
+        return sessionId;
+    }
+
+    public Context get(String sessionId) {
+        Segment segment = segmentFor(sessionId);
+        long now = System.currentTimeMillis();
+        synchronized (segment) {
+            Context context = segment.get(sessionId);
+            if (context == null) {
+                return null;
+            }
+            if (now - context.touchedAt > ttlMillis) {
+                segment.remove(sessionId);
+                return null;
+            }
+            return context;
+        }
+    }
+
+    public void put(String sessionId, int[] productOrdinals, long catalogVersion, int selected) {
+        Segment segment = segmentFor(sessionId);
+        long now = System.currentTimeMillis();
+        Context context = new Context(productOrdinals, catalogVersion, selected, now);
+        synchronized (segment) {
+            // Re-insert so the segment stays ordered by last write
+            segment.remove(sessionId);
+            segment.put(sessionId, context);
+            segment.purgeExpired(now - ttlMillis);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(String sessionId) {
+        int h = sessionId.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    // Last product results shown in a session, as ordinals into the product catalog
+    public static final class Context {
+        private final int[] productOrdinals;
+        private final long catalogVersion;
+        private final int selected;
+        private final long touchedAt;
+
+        private Context(int[] productOrdinals, long catalogVersion, int selected, long touchedAt) {
+            this.productOrdinals = productOrdinals;
+            this.catalogVersion = catalogVersion;
+            this.selected = selected;
+            this.touchedAt = touchedAt;
+        }
+
+        public int[] getProductOrdinals() {
+            return productOrdinals;
+        }
+
+        public long getCatalogVersion() {
+            return catalogVersion;
+        }
+
+        // Position of the product picked with "the second one" etc., or -1
+        public int getSelected() {
+            return selected;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<String, Context> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Context> eldest) {
+            return size() > capacity;
+        }
+
+        // Entries are ordered by last write, so expired sessions collect at the head
+        void purgeExpired(long cutoff) {
+            var iterator = values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().touchedAt >= cutoff) {
+                    break;
+                }
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Approximate counts of the search terms and categories users ask the chatbot for,
+ * including the ones that returned no products. Memory is fixed by configuration.
+ */
+@Component
+public class ChatQueryAnalytics {
+
+    private final HeavyHitterSketch queries;
+    private final HeavyHitterSketch noResultQueries;
+
+    public ChatQueryAnalytics(@Value("${chat.analytics.sketch-width:2048}") int width,
+                              @Value("${chat.analytics.sketch-depth:4}") int depth,
+                              @Value("${chat.analytics.top-k:20}") int topK) {
+        this.queries = new HeavyHitterSketch(width, depth, topK);
+        this.noResultQueries = new HeavyHitterSketch(width, depth, topK);
+    }
+
+    public void recordQuery(String term, int resultCount) {
+        queries.add(term);
+        if (resultCount == 0) {
+            noResultQueries.add(term);
+        }
+    }
+
+    public Map<String, Object> getSummary() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalQueries", queries.getTotal());
+        summary.put("totalNoResultQueries", noResultQueries.getTotal());
+        summary.put("topQueries", queries.getTopTerms());
+        summary.put("topNoResultQueries", noResultQueries.getTopTerms());
+        return summary;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.service;
+
+import com.example.demo.model.EmailOutbox;
+import com.example.demo.repository.EmailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers queued outbox emails in the background.
+ *
+ * Due rows are leased in batches (FOR UPDATE SKIP LOCKED, so several instances can share the
+ * table) and handed to BrevoBatchSender, which groups them into batched Brevo requests. A
+ * failed send is retried with exponential backoff plus jitter; after email.outbox.max-attempts
+ * the row is dead-lettered for an admin to inspect and requeue.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final BrevoBatchSender batchSender;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffSeconds;
+    private final long maxBackoffSeconds;
+    private final long leaseSeconds;
+
+    private final ExecutorService trigger;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean rerun = new AtomicBoolean();
+
+    public EmailOutboxDispatcher(EmailOutboxRepository emailOutboxRepository,
+                                 BrevoBatchSender batchSender,
+                                 @Value("${email.outbox.batch-size:50}") int batchSize,
+                                 @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${email.outbox.base-backoff-seconds:30}") long baseBackoffSeconds,
+                                 @Value("${email.outbox.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                                 @Value("${email.outbox.lease-seconds:120}") long leaseSeconds) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.batchSender = batchSender;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffSeconds = baseBackoffSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+        this.leaseSeconds = leaseSeconds;
+
+        // One pending wake-up is enough; further ones are covered by the run already queued
+        this.trigger = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                namedThreads("email-outbox-trigger-"), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:5000}")
+    public void poll() {
+        dispatch();
+    }
+
+    // Dispatch soon, off the calling thread (e.g. right after an order commits)
+    public void wakeUp() {
+        trigger.execute(this::dispatch);
+    }
+
+    public void dispatch() {
+        if (!running.compareAndSet(false, true)) {
+            rerun.set(true);
+            return;
+        }
+        try {
+            do {
+                rerun.set(false);
+                while (dispatchBatch() == batchSize) {
+                    // A full batch means more rows may be due
+                }
+            } while (rerun.get());
+        } catch (Exception e) {
+            logger.error("Email outbox dispatch failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int dispatchBatch() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> claimed = emailOutboxRepository.claimDue(now, now.plusSeconds(leaseSeconds), batchSize);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Void>> results = new ArrayList<>(claimed.size());
+        for (EmailOutbox email : claimed) {
+            results.add(batchSender.send(email.getToEmail(), email.getSubject(), email.getHtmlContent()));
+        }
+
+        // Wait no longer than the lease, after which another dispatch may claim the rows again
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds);
+        List<Long> sent = new ArrayList<>(claimed.size());
+        for (int i = 0; i < claimed.size(); i++) {
+            try {
+                results.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(claimed.get(i).getId());
+            } catch (ExecutionException e) {
+                failed(claimed.get(i), e.getCause());
+            } catch (TimeoutException e) {
+                failed(claimed.get(i), e);
+            }
+        }
+        if (!sent.isEmpty()) {
+            emailOutboxRepository.markSent(sent, LocalDateTime.now());
+        }
+        return claimed.size();
+    }
+
+    private void failed(EmailOutbox email, Throwable e) {
+        try {
+            int attempts = email.getAttempts() + 1;
+            String error = truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+
+            if (attempts >= maxAttempts) {
+                emailOutboxRepository.markFailed(email.getId(), EmailOutbox.DEAD, attempts, LocalDateTime.now(), error);
+                logger.error("Email {} to {} dead-lettered after {} attempts: {}", email.getId(), email.getToEmail(), attempts, error);
+                return;
+            }
+
+            long delay = backoffSeconds(attempts);
+            emailOutboxRepository.markFailed(email.getId(), EmailOutbox.PENDING, attempts,
+                    LocalDateTime.now().plusSeconds(delay), error);
+            logger.warn("Email {} to {} failed (attempt {}), retrying in {} s: {}", email.getId(), email.getToEmail(), attempts, delay, error);
+        } catch (RuntimeException updateFailure) {
+            // The lease runs out and the email is picked up again
+            logger.error("Could not record failure of email {}: {}", email.getId(), updateFailure.getMessage());
+        }
+    }
+
+    // base * 2^(attempts - 1), capped, with +-20% jitter so failed emails don't retry in lockstep
+    private long backoffSeconds(int attempts) {
+        long delay = baseBackoffSeconds << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, maxBackoffSeconds);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Math.max(1, (long) (delay * jitter));
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return "unknown error";
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Rows claimed but not yet marked stay leased and are picked up again after the lease runs out
+    @PreDestroy
+    public void shutdown() {
+        trigger.shutdownNow();
+    }
+}
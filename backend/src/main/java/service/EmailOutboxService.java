@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import com.example.demo.model.EmailOutbox;
+import com.example.demo.model.Order;
+import com.example.demo.model.User;
+import com.example.demo.repository.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queues order emails in the email_outbox table as part of the caller's transaction.
+ *
+ * The email is only sent if the order change commits, and the request never waits on the
+ * email provider; EmailOutboxDispatcher delivers the rows in the background.
+ *
+ * Status emails are held for email.outbox.status-debounce-seconds. A status change in that
+ * window replaces the waiting email, so an order moved through several statuses in quick
+ * succession produces one email from the status the customer last heard about to the final one.
+ */
+@Service
+public class EmailOutboxService {
+
+    public static final String ORDER_CONFIRMATION = "ORDER_CONFIRMATION";
+    public static final String ORDER_STATUS = "ORDER_STATUS";
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final EmailOutboxDispatcher dispatcher;
+    private final long statusDebounceSeconds;
+    private final long statusMaxDelaySeconds;
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository,
+                              EmailService emailService,
+                              EmailOutboxDispatcher dispatcher,
+                              @Value("${email.outbox.status-debounce-seconds:30}") long statusDebounceSeconds,
+                              @Value("${email.outbox.status-max-delay-seconds:300}") long statusMaxDelaySeconds) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.dispatcher = dispatcher;
+        this.statusDebounceSeconds = statusDebounceSeconds;
+        this.statusMaxDelaySeconds = Math.max(statusDebounceSeconds, statusMaxDelaySeconds);
+    }
+
+    @Transactional
+    public void enqueueOrderConfirmation(User customer, Order order) {
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutbox email = newEmail(ORDER_CONFIRMATION, order.getId(), now);
+        email.setToEmail(customer.getEmail());
+        email.setSubject(emailService.orderConfirmationSubject(order));
+        email.setHtmlContent(emailService.buildOrderConfirmationEmailHtml(customer.getName(), order));
+        email.setNextAttemptAt(now);
+        emailOutboxRepository.save(email);
+        wakeUpAfterCommit();
+    }
+
+    @Transactional
+    public void enqueueOrderStatusUpdate(User customer, Order order, String previousStatus, String newStatus) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Locked, so the dispatcher can't claim it while it is being replaced; one it already claimed isn't found
+        EmailOutbox email = emailOutboxRepository.findPendingForUpdate(ORDER_STATUS, order.getId()).orElse(null);
+        if (email != null && email.getPreviousStatus() != null) {
+            previousStatus = email.getPreviousStatus();
+            if (previousStatus.equalsIgnoreCase(newStatus)) {
+                // Back to what the customer was last told, so there is nothing to report
+                emailOutboxRepository.delete(email);
+                return;
+            }
+        }
+
+        if (email == null) {
+            email = newEmail(ORDER_STATUS, order.getId(), now);
+            email.setPreviousStatus(previousStatus);
+        }
+        email.setToEmail(customer.getEmail());
+        email.setSubject(emailService.orderStatusUpdateSubject(order, newStatus));
+        email.setHtmlContent(emailService.buildOrderStatusUpdateEmailHtml(customer.getName(), order, previousStatus, newStatus));
+
+        // Each change restarts the window, but a steady stream of changes can't hold the email back for good
+        LocalDateTime sendAt = now.plusSeconds(statusDebounceSeconds);
+        LocalDateTime latest = email.getCreatedAt().plusSeconds(statusMaxDelaySeconds);
+        email.setNextAttemptAt(sendAt.isBefore(latest) ? sendAt : latest);
+        emailOutboxRepository.save(email);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (String status : List.of(EmailOutbox.PENDING, EmailOutbox.SENDING, EmailOutbox.SENT, EmailOutbox.DEAD)) {
+            stats.put(status.toLowerCase(), emailOutboxRepository.countByStatus(status));
+        }
+
+        List<Map<String, Object>> deadLetters = new ArrayList<>();
+        for (EmailOutbox email : emailOutboxRepository.findByStatusOrderByIdDesc(EmailOutbox.DEAD, PageRequest.of(0, 20))) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", email.getId());
+            entry.put("type", email.getEmailType());
+            entry.put("orderId", email.getOrderId());
+            entry.put("toEmail", email.getToEmail());
+            entry.put("attempts", email.getAttempts());
+            entry.put("lastError", email.getLastError());
+            entry.put("createdAt", email.getCreatedAt());
+            deadLetters.add(entry);
+        }
+        stats.put("deadLetters", deadLetters);
+        return stats;
+    }
+
+    // Give a dead-lettered email another full set of attempts
+    public boolean retryDeadLetter(Long id) {
+        boolean requeued = emailOutboxRepository.requeueDead(id, LocalDateTime.now()) > 0;
+        if (requeued) {
+            dispatcher.wakeUp();
+        }
+        return requeued;
+    }
+
+    private static EmailOutbox newEmail(String type, Long orderId, LocalDateTime now) {
+        EmailOutbox email = new EmailOutbox();
+        email.setEmailType(type);
+        email.setOrderId(orderId);
+        email.setStatus(EmailOutbox.PENDING);
+        email.setCreatedAt(now);
+        return email;
+    }
+
+    // Don't wait for the next poll once the row is visible to the dispatcher
+    private void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        } else {
+            dispatcher.wakeUp();
+        }
+    }
+}
@@ -18,6 +18,9 @@ public class EmailService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
+    @Value("${brevo.api.url:https://api.brevo.com/v3/smtp/email}")
+    private String brevoApiUrl;
+
     @Value("${brevo.api.key}")
     private String brevoApiKey;
 
@@ -47,51 +50,50 @@ public class EmailService {
 
     private boolean sendEmail(String to, String subject, String htmlContent) {
         try {
-            String url = "https://api.brevo.com/v3/smtp/email";
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("api-key", brevoApiKey);
-
-            Map<String, Object> emailData = new HashMap<>();
-
-            // Sender
-            Map<String, String> sender = new HashMap<>();
-            sender.put("email", senderEmail);
-            sender.put("name", senderName);
-            emailData.put("sender", sender);
-
-            // Recipients
-            List<Map<String, String>> recipients = new ArrayList<>();
-            Map<String, String> recipient = new HashMap<>();
-            recipient.put("email", to);
-            recipients.add(recipient);
-            emailData.put("to", recipients);
-
-            // Content
-            emailData.put("subject", subject);
-            emailData.put("htmlContent", htmlContent);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(emailData, headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url, HttpMethod.POST, entity, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                logger.info("Email sent successfully to: {}", to);
-                return true;
-            } else {
-                logger.error("Failed to send email to {}: {}", to, response.getBody());
-                return false;
-            }
-
+            deliver(to, subject, htmlContent);
+            return true;
         } catch (Exception e) {
             logger.error("Error sending email to {}: {}", to, e.getMessage());
-            e.printStackTrace();
             return false;
         }
     }
 
+    // Send one email, throwing if Brevo doesn't accept it
+    private void deliver(String to, String subject, String htmlContent) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("api-key", brevoApiKey);
+
+        Map<String, Object> emailData = new HashMap<>();
+
+        // Sender
+        Map<String, String> sender = new HashMap<>();
+        sender.put("email", senderEmail);
+        sender.put("name", senderName);
+        emailData.put("sender", sender);
+
+        // Recipients
+        List<Map<String, String>> recipients = new ArrayList<>();
+        Map<String, String> recipient = new HashMap<>();
+        recipient.put("email", to);
+        recipients.add(recipient);
+        emailData.put("to", recipients);
+
+        // Content
+        emailData.put("subject", subject);
+        emailData.put("htmlContent", htmlContent);
+
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(emailData, headers);
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                brevoApiUrl, HttpMethod.POST, entity, String.class);
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new RuntimeException("Brevo returned " + response.getStatusCode() + ": " + response.getBody());
+        }
+        logger.info("Email sent successfully to: {}", to);
+    }
+
     public boolean sendOtpEmail(String toEmail, String otp, String userName) {
         try {
             logger.info("Attempting to send OTP email to: {}", toEmail);
@@ -112,16 +114,15 @@ public class EmailService {
         }
     }
 
-    private String buildOtpEmailHtml(String userName, String otp) {
-        return String.format("""
+    private static final EmailTemplate OTP_EMAIL = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 10px;">
                     <h2 style="color: #007bff;">Password Reset Request</h2>
-                    <p>Hello %s,</p>
+                    <p>Hello {{userName}},</p>
                     <p>Your password reset OTP is:</p>
                     <div style="background-color: #f8f9fa; padding: 20px; text-align: center; border-radius: 5px; margin: 20px 0;">
-                        <h1 style="color: #007bff; font-size: 36px; margin: 0;">%s</h1>
+                        <h1 style="color: #007bff; font-size: 36px; margin: 0;">{{otp}}</h1>
                     </div>
                     <p><strong>This OTP expires in 10 minutes.</strong> Do not share it with anyone.</p>
                     <p>If you didn't request this, please ignore this email.</p>
@@ -130,7 +131,13 @@ public class EmailService {
                 </div>
             </body>
             </html>
-            """, userName != null ? userName : "User", otp);
+            """);
+
+    private String buildOtpEmailHtml(String userName, String otp) {
+        return OTP_EMAIL.writer()
+                .text("userName", userName != null ? userName : "User")
+                .text("otp", otp)
+                .finish();
     }
 
     public boolean sendPasswordResetConfirmation(String toEmail, String userName) {
@@ -153,13 +160,12 @@ public class EmailService {
         }
     }
 
-    private String buildPasswordResetConfirmationHtml(String userName) {
-        return String.format("""
+    private static final EmailTemplate PASSWORD_RESET_CONFIRMATION = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 10px;">
                     <h2 style="color: #28a745;">Password Reset Successful</h2>
-                    <p>Hello %s,</p>
+                    <p>Hello {{userName}},</p>
                     <p>Your password has been successfully reset.</p>
                     <p><strong>If you didn't make this change, contact our support team immediately.</strong></p>
                     <hr>
@@ -167,14 +173,19 @@ public class EmailService {
                 </div>
             </body>
             </html>
-            """, userName != null ? userName : "User");
+            """);
+
+    private String buildPasswordResetConfirmationHtml(String userName) {
+        return PASSWORD_RESET_CONFIRMATION.writer()
+                .text("userName", userName != null ? userName : "User")
+                .finish();
     }
 
     public boolean sendOrderConfirmationEmail(String toEmail, String userName, Order order) {
         try {
             logger.info("Sending order confirmation to: {} for order: {}", toEmail, order.getId());
 
-            String subject = "Order Confirmed #" + order.getId() + " - Your Ecommerce Store";
+            String subject = orderConfirmationSubject(order);
             String htmlContent = buildOrderConfirmationEmailHtml(userName, order);
 
             boolean result = sendEmail(toEmail, subject, htmlContent);
@@ -190,44 +201,36 @@ public class EmailService {
         }
     }
 
-    private String buildOrderConfirmationEmailHtml(String userName, Order order) {
-        StringBuilder itemsHtml = new StringBuilder();
+    String orderConfirmationSubject(Order order) {
+        return "Order Confirmed #" + order.getId() + " - Your Ecommerce Store";
+    }
 
-        if (order.getItems() != null && !order.getItems().isEmpty()) {
-            for (OrderItem item : order.getItems()) {
-                itemsHtml.append(String.format("""
+    private static final EmailTemplate ORDER_CONFIRMATION_ITEM = EmailTemplate.compile("""
                     <tr>
-                        <td style="padding: 10px; border-bottom: 1px solid #eee;">%s (%s)</td>
-                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: center;">%d</td>
-                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: right;">₹%.2f</td>
-                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: right;">₹%.2f</td>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee;">{{productName}} ({{color}})</td>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: center;">{{quantity}}</td>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: right;">₹{{price}}</td>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: right;">₹{{itemTotal}}</td>
                     </tr>
-                    """,
-                        item.getProductName(),
-                        item.getColor(),
-                        item.getQuantity(),
-                        item.getPrice(),
-                        item.getItemTotal()));
-            }
-        }
+                    """);
 
-        return String.format("""
+    private static final EmailTemplate ORDER_CONFIRMATION = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 700px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 10px;">
                     <h2 style="color: #28a745;">Order Confirmed!</h2>
-                    <p>Hello %s,</p>
+                    <p>Hello {{userName}},</p>
                     <p>Thank you for your order! Your order has been confirmed and is being processed.</p>
                     
                     <div style="background-color: #f8f9fa; padding: 20px; border-radius: 5px; margin: 20px 0;">
                         <h3 style="margin-top: 0;">Order Details</h3>
-                        <p><strong>Order ID:</strong> #%d</p>
-                        <p><strong>Order Date:</strong> %s</p>
-                        <p><strong>Status:</strong> %s</p>
+                        <p><strong>Order ID:</strong> #{{orderId}}</p>
+                        <p><strong>Order Date:</strong> {{orderDate}}</p>
+                        <p><strong>Status:</strong> {{status}}</p>
                     </div>
                     
                     <h3>Items Ordered</h3>
-                    <table style="width: 100%%; border-collapse: collapse; margin: 20px 0;">
+                    <table style="width: 100%; border-collapse: collapse; margin: 20px 0;">
                         <thead>
                             <tr style="background-color: #007bff; color: white;">
                                 <th style="padding: 12px; text-align: left;">Item</th>
@@ -237,14 +240,14 @@ public class EmailService {
                             </tr>
                         </thead>
                         <tbody>
-                            %s
+                            {{items}}
                         </tbody>
                     </table>
                     
                     <div style="text-align: right; margin: 20px 0;">
-                        <p><strong>Subtotal: ₹%.2f</strong></p>
-                        <p><strong>Shipping: ₹%.2f</strong></p>
-                        <p style="font-size: 18px; color: #007bff;"><strong>TOTAL: ₹%.2f</strong></p>
+                        <p><strong>Subtotal: ₹{{subtotal}}</strong></p>
+                        <p><strong>Shipping: ₹{{shippingFee}}</strong></p>
+                        <p style="font-size: 18px; color: #007bff;"><strong>TOTAL: ₹{{orderTotal}}</strong></p>
                     </div>
                     
                     <div style="background-color: #e7f3ff; padding: 15px; border-radius: 5px; margin: 20px 0;">
@@ -262,22 +265,41 @@ public class EmailService {
                 </div>
             </body>
             </html>
-            """,
-                userName != null ? userName : "Valued Customer",
-                order.getId(),
-                formatDate(order.getCreatedAt().toString()),
-                capitalizeStatus(order.getStatus()),
-                itemsHtml.toString(),
-                order.getSubtotal(),
-                order.getShippingFee(),
-                order.getOrderTotal());
+            """);
+
+    public String buildOrderConfirmationEmailHtml(String userName, Order order) {
+        EmailTemplate.Writer email = ORDER_CONFIRMATION.writer()
+                .text("userName", userName != null ? userName : "Valued Customer")
+                .text("orderId", order.getId())
+                .text("orderDate", formatDate(order.getCreatedAt().toString()))
+                .text("status", capitalizeStatus(order.getStatus().getValue()));
+
+        // Item rows go straight into the email being rendered
+        StringBuilder items = email.open("items");
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                ORDER_CONFIRMATION_ITEM.writer(items)
+                        .text("productName", item.getProductName())
+                        .text("color", item.getColor())
+                        .text("quantity", item.getQuantity())
+                        .money("price", item.getPrice())
+                        .money("itemTotal", item.getItemTotal())
+                        .end();
+            }
+        }
+
+        return email
+                .money("subtotal", order.getSubtotal())
+                .money("shippingFee", order.getShippingFee())
+                .money("orderTotal", order.getOrderTotal())
+                .finish();
     }
 
     public boolean sendOrderStatusUpdateEmail(String toEmail, String userName, Order order, String previousStatus, String newStatus) {
         try {
             logger.info("Sending order status update to: {} for order: {} (status: {} -> {})", toEmail, order.getId(), previousStatus, newStatus);
 
-            String subject = "Order Update #" + order.getId() + " - " + capitalizeStatus(newStatus) + " - Your Ecommerce Store";
+            String subject = orderStatusUpdateSubject(order, newStatus);
             String htmlContent = buildOrderStatusUpdateEmailHtml(userName, order, previousStatus, newStatus);
 
             boolean result = sendEmail(toEmail, subject, htmlContent);
@@ -293,44 +315,53 @@ public class EmailService {
         }
     }
 
-    private String buildOrderStatusUpdateEmailHtml(String userName, Order order, String previousStatus, String newStatus) {
-        String statusColor = getStatusColor(newStatus);
-        String statusMessage = getStatusMessage(newStatus);
-        String nextSteps = getNextStepsMessage(newStatus);
+    String orderStatusUpdateSubject(Order order, String newStatus) {
+        return "Order Update #" + order.getId() + " - " + capitalizeStatus(newStatus) + " - Your Ecommerce Store";
+    }
 
-        StringBuilder itemsHtml = new StringBuilder();
-        if (order.getItems() != null && !order.getItems().isEmpty()) {
-            for (OrderItem item : order.getItems()) {
-                itemsHtml.append(String.format("""
+    private static final EmailTemplate ORDER_STATUS_ITEM = EmailTemplate.compile("""
                     <tr>
-                        <td style="padding: 8px; border-bottom: 1px solid #eee;">%s</td>
-                        <td style="padding: 8px; border-bottom: 1px solid #eee; text-align: center;">%d</td>
-                        <td style="padding: 8px; border-bottom: 1px solid #eee; text-align: right;">₹%.2f</td>
+                        <td style="padding: 8px; border-bottom: 1px solid #eee;">{{productName}}</td>
+                        <td style="padding: 8px; border-bottom: 1px solid #eee; text-align: center;">{{quantity}}</td>
+                        <td style="padding: 8px; border-bottom: 1px solid #eee; text-align: right;">₹{{itemTotal}}</td>
                     </tr>
-                    """, item.getProductName(), item.getQuantity(), item.getItemTotal()));
-            }
-        }
+                    """);
+
+    private static final EmailTemplate ORDER_STATUS_ITEMS = EmailTemplate.compile("""
+                    <h3>Items</h3>
+                    <table style="width: 100%; border-collapse: collapse; margin: 10px 0;">
+                        <thead>
+                            <tr style="background-color: #f8f9fa;">
+                                <th style="padding: 8px; text-align: left;">Item</th>
+                                <th style="padding: 8px; text-align: center;">Qty</th>
+                                <th style="padding: 8px; text-align: right;">Total</th>
+                            </tr>
+                        </thead>
+                        <tbody>{{rows}}</tbody>
+                    </table>
+                    <p style="text-align: right;"><strong>Total Amount: ₹{{orderTotal}}</strong></p>
+                    """);
 
-        return String.format("""
+    private static final EmailTemplate ORDER_STATUS_UPDATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 10px;">
-                    <h2 style="color: %s;">Order Status Update</h2>
-                    <p>Hello %s,</p>
-                    <p>%s</p>
+                    <h2 style="color: {{statusColor}};">Order Status Update</h2>
+                    <p>Hello {{userName}},</p>
+                    <p>{{statusMessage}}</p>
                     
                     <div style="background-color: #f8f9fa; padding: 20px; border-radius: 5px; margin: 20px 0;">
                         <h3 style="margin-top: 0;">Order Summary</h3>
-                        <p><strong>Order ID:</strong> #%d</p>
-                        <p><strong>Order Date:</strong> %s</p>
-                        <p><strong>Previous Status:</strong> %s</p>
-                        <p><strong>Current Status:</strong> <span style="color: %s; font-weight: bold;">%s</span></p>
+                        <p><strong>Order ID:</strong> #{{orderId}}</p>
+                        <p><strong>Order Date:</strong> {{orderDate}}</p>
+                        <p><strong>Previous Status:</strong> {{previousStatus}}</p>
+                        <p><strong>Current Status:</strong> <span style="color: {{statusColor}}; font-weight: bold;">{{newStatus}}</span></p>
                     </div>
                     
-                    %s
+                    {{items}}
                     
                     <div style="background-color: #e7f3ff; padding: 15px; border-radius: 5px; margin: 20px 0;">
-                        <p>%s</p>
+                        <p>{{nextSteps}}</p>
                     </div>
                     
                     <p>Track your order in your account or contact support for assistance.</p>
@@ -339,31 +370,38 @@ public class EmailService {
                 </div>
             </body>
             </html>
-            """,
-                statusColor,
-                userName != null ? userName : "Valued Customer",
-                statusMessage,
-                order.getId(),
-                formatDate(order.getCreatedAt().toString()),
-                capitalizeStatus(previousStatus),
-                statusColor,
-                capitalizeStatus(newStatus),
-                order.getItems() != null && !order.getItems().isEmpty() ?
-                        String.format("""
-                    <h3>Items</h3>
-                    <table style="width: 100%%; border-collapse: collapse; margin: 10px 0;">
-                        <thead>
-                            <tr style="background-color: #f8f9fa;">
-                                <th style="padding: 8px; text-align: left;">Item</th>
-                                <th style="padding: 8px; text-align: center;">Qty</th>
-                                <th style="padding: 8px; text-align: right;">Total</th>
-                            </tr>
-                        </thead>
-                        <tbody>%s</tbody>
-                    </table>
-                    <p style="text-align: right;"><strong>Total Amount: ₹%.2f</strong></p>
-                    """, itemsHtml.toString(), order.getOrderTotal()) : "",
-                nextSteps);
+            """);
+
+    public String buildOrderStatusUpdateEmailHtml(String userName, Order order, String previousStatus, String newStatus) {
+        String statusColor = getStatusColor(newStatus);
+
+        EmailTemplate.Writer email = ORDER_STATUS_UPDATE.writer()
+                .text("statusColor", statusColor)
+                .text("userName", userName != null ? userName : "Valued Customer")
+                .text("statusMessage", getStatusMessage(newStatus))
+                .text("orderId", order.getId())
+                .text("orderDate", formatDate(order.getCreatedAt().toString()))
+                .text("previousStatus", capitalizeStatus(previousStatus))
+                .text("statusColor", statusColor)
+                .text("newStatus", capitalizeStatus(newStatus));
+
+        StringBuilder items = email.open("items");
+        if (order.getItems() != null && !order.getItems().isEmpty()) {
+            EmailTemplate.Writer section = ORDER_STATUS_ITEMS.writer(items);
+            StringBuilder rows = section.open("rows");
+            for (OrderItem item : order.getItems()) {
+                ORDER_STATUS_ITEM.writer(rows)
+                        .text("productName", item.getProductName())
+                        .text("quantity", item.getQuantity())
+                        .money("itemTotal", item.getItemTotal())
+                        .end();
+            }
+            section.money("orderTotal", order.getOrderTotal()).end();
+        }
+
+        return email
+                .text("nextSteps", getNextStepsMessage(newStatus))
+                .finish();
     }
 
     private String getStatusColor(String status) {
@@ -392,7 +430,7 @@ public class EmailService {
             case "cancelled":
                 return "Your order has been cancelled. Contact support if you have questions.";
             default:
-                return String.format("Your order status has been updated to %s.", capitalizeStatus(status));
+                return "Your order status has been updated to " + capitalizeStatus(status) + ".";
         }
     }
 
@@ -431,35 +469,38 @@ public class EmailService {
         }
     }
 
-    private String buildContactFormEmailHtml(ContactRequest contactRequest) {
-        return String.format("""
+    private static final EmailTemplate CONTACT_FORM = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 10px;">
                     <h2 style="color: #007bff;">New Contact Form Message</h2>
                     
                     <div style="background-color: #f8f9fa; padding: 20px; border-radius: 5px; margin: 20px 0;">
-                        <p><strong>From:</strong> %s</p>
-                        <p><strong>Email:</strong> %s</p>
-                        <p><strong>Date:</strong> %s</p>
+                        <p><strong>From:</strong> {{username}}</p>
+                        <p><strong>Email:</strong> {{email}}</p>
+                        <p><strong>Date:</strong> {{date}}</p>
                     </div>
                     
                     <h3>Message:</h3>
                     <div style="background-color: #fff; padding: 15px; border-left: 4px solid #007bff; margin: 20px 0;">
-                        <p>%s</p>
+                        <p>{{message}}</p>
                     </div>
                     
-                    <p style="color: #666; font-size: 12px;">Reply directly to <a href="mailto:%s">%s</a> to respond to the customer.</p>
+                    <p style="color: #666; font-size: 12px;">Reply directly to <a href="mailto:{{email}}">{{email}}</a> to respond to the customer.</p>
                 </div>
             </body>
             </html>
-            """,
-                contactRequest.getUsername(),
-                contactRequest.getEmail(),
-                java.time.LocalDateTime.now().toString().split("T")[0],
-                contactRequest.getMessage().replace("\n", "<br>"),
-                contactRequest.getEmail(),
-                contactRequest.getEmail());
+            """);
+
+    private String buildContactFormEmailHtml(ContactRequest contactRequest) {
+        return CONTACT_FORM.writer()
+                .text("username", contactRequest.getUsername())
+                .text("email", contactRequest.getEmail())
+                .text("date", java.time.LocalDate.now())
+                .text("message", contactRequest.getMessage().replace("\n", "<br>"))
+                .text("email", contactRequest.getEmail())
+                .text("email", contactRequest.getEmail())
+                .finish();
     }
 
     private String capitalizeStatus(String status) {
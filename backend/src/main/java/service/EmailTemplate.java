@@ -0,0 +1,152 @@
+package com.example.demo.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An HTML email template parsed once into static text segments and {{name}} slots.
+ *
+ * Rendering walks the slots in the order they appear, appending each value followed by the
+ * static text after it, so the cost is one copy per segment plus the dynamic content itself.
+ * Output goes into a per-thread buffer that is reused across emails, and row templates (order
+ * items) are written straight into their parent's buffer instead of being built separately.
+ */
+final class EmailTemplate {
+
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8 * 1024));
+
+    private final String[] segments; // segments[i] precedes slots[i]; the last one follows the last slot
+    private final String[] slots;
+    private final int staticLength;
+
+    private EmailTemplate(String[] segments, String[] slots) {
+        this.segments = segments;
+        this.slots = slots;
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.staticLength = length;
+    }
+
+    static EmailTemplate compile(String source) {
+        List<String> segments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed slot at offset " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty slot at offset " + open);
+            }
+            segments.add(source.substring(position, open));
+            // Interned so the per-slot name check is normally a reference comparison
+            slots.add(name.intern());
+            position = close + 2;
+        }
+        segments.add(source.substring(position));
+        return new EmailTemplate(segments.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+
+    // Render into the calling thread's reusable buffer; finish() returns the email
+    Writer writer() {
+        StringBuilder out = BUFFER.get();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            out = new StringBuilder(8 * 1024);
+            BUFFER.set(out);
+        }
+        out.setLength(0);
+        return writer(out);
+    }
+
+    // Render into an enclosing template's output (e.g. one row of a table)
+    Writer writer(StringBuilder out) {
+        out.ensureCapacity(out.length() + staticLength);
+        return new Writer(out);
+    }
+
+    /**
+     * Fills the slots of one rendering, in template order. Each slot is named so a call
+     * that gets out of step with the template fails instead of producing a garbled email.
+     */
+    final class Writer {
+        private final StringBuilder out;
+        private int next;
+
+        private Writer(StringBuilder out) {
+            this.out = out;
+        }
+
+        Writer text(String slot, Object value) {
+            open(slot).append(value);
+            return this;
+        }
+
+        // Same output as "%.2f" for amounts (null prints as "null", like String.format)
+        Writer money(String slot, Double value) {
+            StringBuilder target = open(slot);
+            if (value == null) {
+                target.append("null");
+            } else {
+                appendMoney(target, value);
+            }
+            return this;
+        }
+
+        /**
+         * Move to the slot and return the output, for content written by another template.
+         * The static text after the slot is added by the next call.
+         */
+        StringBuilder open(String slot) {
+            if (next >= slots.length) {
+                throw new IllegalStateException("Template has no slot '" + slot + "' left to fill");
+            }
+            String expected = slots[next];
+            if (expected != slot && !expected.equals(slot)) {
+                throw new IllegalStateException("Expected slot '" + expected + "' but got '" + slot + "'");
+            }
+            out.append(segments[next++]);
+            return out;
+        }
+
+        // Append the trailing text and return the email
+        String finish() {
+            end();
+            return out.toString();
+        }
+
+        // Append the trailing text of a template rendered into a parent's output
+        void end() {
+            if (next != slots.length) {
+                throw new IllegalStateException("Slot '" + slots[next] + "' was not filled");
+            }
+            out.append(segments[next]);
+        }
+    }
+
+    // %.2f rounds the shortest decimal form of the double half-up, which BigDecimal.valueOf
+    // gives too; rounding value * 100 instead would turn 1.005 into 1.00
+    private static void appendMoney(StringBuilder out, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append(String.format("%.2f", value));
+            return;
+        }
+        BigDecimal amount = BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+        if (amount.signum() == 0 && (value < 0 || 1 / value < 0)) {
+            // %.2f keeps the sign of a negative amount that rounds to zero
+            out.append('-');
+        }
+        out.append(amount.toPlainString());
+    }
+}
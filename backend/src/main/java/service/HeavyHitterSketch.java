@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory frequency counter: a count-min sketch plus a small top-K table of the most
+ * frequent terms seen so far.
+ *
+ * Counts are approximate (never under-estimated). All updates are lock-free and cost
+ * O(depth + k), independent of how many distinct terms have been seen.
+ */
+public class HeavyHitterSketch {
+
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646D};
+
+    private final int depth;
+    private final int widthMask;
+    private final AtomicLongArray counters;
+    private final AtomicReferenceArray<HeavyHitter> topK;
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     * @param depth number of hash rows (at most 6)
+     * @param k     number of heavy hitters to keep
+     */
+    public HeavyHitterSketch(int width, int depth, int k) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Sketch depth must be between 1 and " + SEEDS.length);
+        }
+        int roundedWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.widthMask = roundedWidth - 1;
+        this.counters = new AtomicLongArray(roundedWidth * depth);
+        this.topK = new AtomicReferenceArray<>(k);
+    }
+
+    public void add(String term) {
+        if (term == null || term.isEmpty()) {
+            return;
+        }
+        if (term.length() > MAX_TERM_LENGTH) {
+            term = term.substring(0, MAX_TERM_LENGTH);
+        }
+
+        total.increment();
+        int hash = term.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long count = counters.incrementAndGet(row * (widthMask + 1) + index(hash, row));
+            estimate = Math.min(estimate, count);
+        }
+        offer(term, estimate);
+    }
+
+    public long estimate(String term) {
+        if (term.length() > MAX_TERM_LENGTH) {
+            term = term.substring(0, MAX_TERM_LENGTH);
+        }
+        int hash = term.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(row * (widthMask + 1) + index(hash, row)));
+        }
+        return estimate;
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    // Heavy hitters ordered by estimated count, highest first
+    public List<Map<String, Object>> getTopTerms() {
+        Map<String, Long> merged = new HashMap<>();
+        for (int i = 0; i < topK.length(); i++) {
+            HeavyHitter hitter = topK.get(i);
+            if (hitter != null) {
+                // Concurrent offers can briefly place a term in two slots; keep the larger count
+                merged.merge(hitter.term, hitter.count, Math::max);
+            }
+        }
+
+        List<Map<String, Object>> terms = new ArrayList<>(merged.size());
+        merged.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> {
+                    Map<String, Object> term = new HashMap<>();
+                    term.put("term", entry.getKey());
+                    term.put("count", entry.getValue());
+                    terms.add(term);
+                });
+        return terms;
+    }
+
+    private void offer(String term, long estimate) {
+        while (true) {
+            int minSlot = -1;
+            HeavyHitter min = null;
+
+            for (int i = 0; i < topK.length(); i++) {
+                HeavyHitter hitter = topK.get(i);
+                if (hitter == null) {
+                    if (topK.compareAndSet(i, null, new HeavyHitter(term, estimate))) {
+                        return;
+                    }
+                    hitter = topK.get(i);
+                }
+                if (hitter.term.equals(term)) {
+                    if (hitter.count >= estimate || topK.compareAndSet(i, hitter, new HeavyHitter(term, estimate))) {
+                        return;
+                    }
+                    // Lost a race on this slot; rescan
+                    minSlot = -2;
+                    break;
+                }
+                if (min == null || hitter.count < min.count) {
+                    min = hitter;
+                    minSlot = i;
+                }
+            }
+
+            if (minSlot == -2) {
+                continue;
+            }
+            if (min == null || estimate <= min.count
+                    || topK.compareAndSet(minSlot, min, new HeavyHitter(term, estimate))) {
+                return;
+            }
+        }
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x7FEB352D;
+        h ^= h >>> 15;
+        return h & widthMask;
+    }
+
+    private static final class HeavyHitter {
+        private final String term;
+        private final long count;
+
+        private HeavyHitter(String term, long count) {
+            this.term = term;
+            this.count = count;
+        }
+    }
+}
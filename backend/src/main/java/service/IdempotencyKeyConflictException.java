@@ -0,0 +1,9 @@
+package com.example.demo.service;
+
+// An Idempotency-Key was reused with a different request body
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
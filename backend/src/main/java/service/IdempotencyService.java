@@ -0,0 +1,190 @@
+package com.example.demo.service;
+
+import com.example.demo.model.IdempotencyRecord;
+import com.example.demo.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per (user, Idempotency-Key) and replays its response for retries.
+ *
+ * The key is claimed with an insert in the same transaction as the work itself and completed
+ * with the serialized response before commit, so a committed key always has its response, and
+ * a failed request leaves no key behind and can simply be retried. A concurrent retry blocks on
+ * the unique key until the first request finishes, then replays its response. Completed
+ * responses are also kept in a bounded in-memory cache, so most retries never reach the database.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final long retentionHours;
+    private final Map<String, CachedResponse> cache;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.retention-hours:24}") long retentionHours,
+                              @Value("${idempotency.cache.max-entries:10000}") int maxCacheEntries) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.retentionHours = retentionHours;
+        int capacity = Math.max(1, maxCacheEntries);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Run the action once for this key and return its response serialized as JSON, or the
+     * stored response if the key was used before.
+     *
+     * @throws IllegalArgumentException if the key is blank or too long
+     * @throws IdempotencyKeyConflictException if the key was already used for a different request
+     */
+    public Response execute(Long userId, String key, Object request, Supplier<?> action) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(request);
+        String cacheKey = userId + ":" + key;
+
+        CachedResponse cached = getCached(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+
+        CachedResponse[] stored = new CachedResponse[1];
+        Response response = transactionTemplate.execute(status -> {
+            if (idempotencyRecordRepository.claim(userId, key, requestHash, LocalDateTime.now()) == 0) {
+                // Completed in the transaction that claimed it, so a visible key always has its response
+                IdempotencyRecord record = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key)
+                        .orElseThrow(() -> new RuntimeException("Idempotency key disappeared, retry the request"));
+                stored[0] = new CachedResponse(record.getRequestHash(), record.getResponseStatus(), record.getResponseBody(),
+                        System.currentTimeMillis());
+                return null;
+            }
+
+            String body = toJson(action.get());
+            idempotencyRecordRepository.complete(userId, key, 200, body);
+            stored[0] = new CachedResponse(requestHash, 200, body, System.currentTimeMillis());
+            return new Response(200, body, false);
+        });
+
+        // Committed by now
+        putCached(cacheKey, stored[0]);
+        return response != null ? response : replay(stored[0], requestHash);
+    }
+
+    @Scheduled(cron = "${idempotency.cleanup-cron:0 15 * * * *}")
+    public void removeExpiredKeys() {
+        int removed = idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+        if (removed > 0) {
+            logger.info("Removed {} idempotency keys older than {} hours", removed, retentionHours);
+        }
+    }
+
+    private Response replay(CachedResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            throw new IdempotencyKeyConflictException("Idempotency-Key was already used for a different request");
+        }
+        return new Response(stored.status, stored.body, true);
+    }
+
+    private CachedResponse getCached(String cacheKey) {
+        synchronized (cache) {
+            CachedResponse cached = cache.get(cacheKey);
+            if (cached != null && System.currentTimeMillis() - cached.storedAt > retentionHours * 3_600_000) {
+                cache.remove(cacheKey);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void putCached(String cacheKey, CachedResponse response) {
+        synchronized (cache) {
+            cache.put(cacheKey, response);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize response: " + e.getMessage(), e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not hash request: " + e.getMessage(), e);
+        }
+    }
+
+    // A response to send: the JSON body, and whether it is a replay of an earlier request
+    public static final class Response {
+        private final int status;
+        private final String body;
+        private final boolean replayed;
+
+        Response(int status, String body, boolean replayed) {
+            this.status = status;
+            this.body = body;
+            this.replayed = replayed;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    private static final class CachedResponse {
+        private final String requestHash;
+        private final int status;
+        private final String body;
+        private final long storedAt;
+
+        CachedResponse(String requestHash, int status, String body, long storedAt) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.body = body;
+            this.storedAt = storedAt;
+        }
+    }
+}
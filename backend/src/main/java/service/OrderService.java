@@ -1,16 +1,25 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.CartItemDto;
+import com.example.demo.dto.CheckoutRequest;
+import com.example.demo.dto.OrderPage;
+import com.example.demo.dto.OrderTotals;
 import com.example.demo.dto.PlaceOrderRequest;
 import com.example.demo.model.Order;
 import com.example.demo.model.OrderItem;
+import com.example.demo.model.OrderStatus;
 import com.example.demo.model.User;
 import com.example.demo.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 @Service
@@ -18,30 +27,73 @@ import java.util.List;
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final UserService userService;
     private final CartService cartService;
-    private final EmailService emailService; // NEW: Added EmailService dependency
+    private final EmailOutboxService emailOutboxService;
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * One page of the user's orders, newest first, with their items.
+     * The cursor is the nextCursor of the previous page, or null for the first one;
+     * without a limit a page holds DEFAULT_PAGE_SIZE orders.
+     */
+    @Transactional(readOnly = true)
+    public OrderPage getOrdersPage(Long userId, String cursor, Integer limit) {
+        boolean firstPage = cursor == null || cursor.isBlank();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        // One extra row tells whether there is a next page
+        Pageable page = PageRequest.of(0, pageSize + 1);
+
+        List<Order> orders;
+        if (firstPage) {
+            orders = orderRepository.findHistoryPage(userId, page);
+        } else {
+            String[] position = decodeCursor(cursor);
+            orders = orderRepository.findHistoryPageAfter(userId, LocalDateTime.parse(position[0]), Long.valueOf(position[1]), page);
+        }
 
-    // Find orders by user email
-    public List<Order> getOrdersByEmail(String email) {
-        try {
-            User user = userService.getUserByEmail(email);
-            // Fixed: Updated method name to use underscore
-            List<Order> orders = orderRepository.findByUser_IdOrderByCreatedAtDesc(user.getId());
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = new ArrayList<>(orders.subList(0, pageSize));
+        }
+        if (!orders.isEmpty()) {
+            // Items for the whole page in one query instead of one per order during serialization
+            orderRepository.fetchItems(orders);
+        }
 
-            // Log the fetched orders for debugging
-            System.out.println("Fetched " + orders.size() + " orders for user: " + email);
+        String nextCursor = hasMore ? encodeCursor(orders.get(orders.size() - 1)) : null;
+        return new OrderPage(orders, nextCursor);
+    }
 
-            return orders;
-        } catch (Exception e) {
-            System.err.println("Error fetching orders for user " + email + ": " + e.getMessage());
-            throw new RuntimeException("Failed to fetch orders: " + e.getMessage());
+    // Order count and amount spent over the user's whole history, aggregated in the database
+    @Transactional(readOnly = true)
+    public OrderTotals getOrderTotals(Long userId) {
+        return new OrderTotals(orderRepository.countByUser_Id(userId), orderRepository.sumOrderTotalByUserId(userId));
+    }
+
+    // Opaque to clients: the (createdAt, id) of the last order on the page
+    private static String encodeCursor(Order order) {
+        String position = order.getCreatedAt() + "," + order.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
     }
 
     // Create order from cart items with enhanced validation and error handling
+    // The user is the authenticated principal, already loaded by the JWT filter
     @Transactional
-    public Order createOrderFromCart(PlaceOrderRequest request, String email) {
+    public Order createOrderFromCart(PlaceOrderRequest request, User user) {
         try {
             // Validate request
             if (request == null) {
@@ -64,17 +116,19 @@ public class OrderService {
                 }
             }
 
-            User user = userService.getUserByEmail(email);
-            if (user == null) {
-                throw new RuntimeException("User not found: " + email);
+            if (user == null || user.getId() == null) {
+                throw new RuntimeException("User not found");
             }
 
-            System.out.println("Creating order for user: " + email + " with " + request.getCartItems().size() + " items");
+            System.out.println("Creating order for user: " + user.getEmail() + " with " + request.getCartItems().size() + " items");
+
+            // Persist any cart changes still held in memory so the stored cart matches what is ordered
+            cartService.flushPendingChanges(user.getId());
 
             // Create new order
             Order order = new Order();
             order.setUser(user);
-            order.setStatus("ORDERED"); // Set status as ORDERED when order is placed
+            order.setStatus(OrderStatus.ORDERED); // Set status as ORDERED when order is placed
             order.setSubtotal(request.getSubtotal());
             order.setShippingFee(request.getShippingFee());
             order.setOrderTotal(request.getOrderTotal());
@@ -94,31 +148,15 @@ public class OrderService {
 
             order.setItems(orderItems);
 
-            // Save order (this will also save order items due to cascade)
-            Order savedOrder = orderRepository.save(order);
+            // Save order (this will also save order items due to cascade). Flushed here so the
+            // batched inserts run now and createdAt is set before the confirmation email is rendered
+            Order savedOrder = orderRepository.saveAndFlush(order);
 
             System.out.println("Order saved with ID: " + savedOrder.getId());
             System.out.println("Order items count: " + (savedOrder.getItems() != null ? savedOrder.getItems().size() : 0));
 
-            // NEW: Send order confirmation email
-            try {
-                boolean emailSent = emailService.sendOrderConfirmationEmail(
-                        user.getEmail(),
-                        user.getName(),
-                        savedOrder
-                );
-
-                if (emailSent) {
-                    System.out.println("✅ Order confirmation email sent successfully to: " + user.getEmail());
-                } else {
-                    System.err.println("⚠️ Failed to send order confirmation email to: " + user.getEmail());
-                    // Don't throw exception here - order should still be successful even if email fails
-                }
-            } catch (Exception emailException) {
-                System.err.println("⚠️ Exception while sending order confirmation email: " + emailException.getMessage());
-                // Log the exception but don't fail the order process
-                emailException.printStackTrace();
-            }
+            // Queued with the order and sent in the background, so checkout doesn't wait on the email provider
+            emailOutboxService.enqueueOrderConfirmation(user, savedOrder);
 
             // Don't clear cart - items should remain for user to continue shopping
             // User can manually clear cart if they want
@@ -136,8 +174,42 @@ public class OrderService {
         }
     }
 
+    /**
+     * Place an order from the cart stored on the server. The order and its items are built
+     * from cart_items by one INSERT ... SELECT, so the client only sends the shipping fee, and
+     * the subtotal is computed from the stored prices. With clearCart the cart is emptied in
+     * the same statement, so the order and the cleared cart commit or roll back together.
+     */
+    @Transactional
+    public Order checkoutCart(CheckoutRequest request, User user) {
+        if (request == null || request.getShippingFee() == null || request.getShippingFee() < 0) {
+            throw new IllegalArgumentException("Invalid checkout request data");
+        }
+        if (user == null || user.getId() == null) {
+            throw new RuntimeException("User not found");
+        }
+
+        // The statement reads the stored cart, so changes still held in memory go first
+        cartService.flushPendingChanges(user.getId());
+
+        Long orderId = orderRepository.checkoutCart(user.getId(), LocalDateTime.now(), OrderStatus.ORDERED.getCode(),
+                        request.getShippingFee(), request.isClearCart())
+                .orElseThrow(() -> new IllegalArgumentException("Cart is empty"));
+        if (request.isClearCart()) {
+            cartService.cartCheckedOut(user.getId());
+        }
+
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
+        System.out.println("Order " + orderId + " placed from stored cart with " + order.getLineCount() + " items"
+                + (request.isClearCart() ? ", cart cleared" : ""));
+
+        emailOutboxService.enqueueOrderConfirmation(user, order);
+        return order;
+    }
+
     // Update order status with validation
-    public Order updateOrderStatus(Long orderId, String status, String email) {
+    public Order updateOrderStatus(Long orderId, String status, Long userId) {
         try {
             if (orderId == null) {
                 throw new IllegalArgumentException("Order ID cannot be null");
@@ -147,24 +219,29 @@ public class OrderService {
                 throw new IllegalArgumentException("Status cannot be null or empty");
             }
 
-            // Validate status
-            String normalizedStatus = status.toUpperCase().trim();
-            if (!isValidStatus(normalizedStatus)) {
-                throw new IllegalArgumentException("Invalid order status: " + status);
-            }
+            // Validate status (any case)
+            OrderStatus newStatus = OrderStatus.from(status);
 
-            User user = userService.getUserByEmail(email);
-            Order order = orderRepository.findById(orderId)
+            Order order = orderRepository.findWithUserById(orderId)
                     .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
 
             // Ensure user owns this order
-            if (!order.getUser().getId().equals(user.getId())) {
+            if (!order.getUser().getId().equals(userId)) {
                 throw new RuntimeException("Unauthorized to update this order");
             }
 
-            System.out.println("Updating order " + orderId + " status from " + order.getStatus() + " to " + normalizedStatus);
+            // Setting the current status again changes nothing, as in the admin update
+            if (order.getStatus() == newStatus) {
+                return order;
+            }
+            if (!order.getStatus().canTransitionTo(newStatus)) {
+                throw new IllegalArgumentException("Cannot change order status from " + order.getStatus().getValue()
+                        + " to " + newStatus.getValue());
+            }
+
+            System.out.println("Updating order " + orderId + " status from " + order.getStatus() + " to " + newStatus);
 
-            order.setStatus(normalizedStatus);
+            order.setStatus(newStatus);
             Order updatedOrder = orderRepository.save(order);
 
             System.out.println("Order status updated successfully");
@@ -177,18 +254,17 @@ public class OrderService {
     }
 
     // Get specific order by ID with user validation
-    public Order getOrderById(Long orderId, String email) {
+    public Order getOrderById(Long orderId, Long userId) {
         try {
             if (orderId == null) {
                 throw new IllegalArgumentException("Order ID cannot be null");
             }
 
-            User user = userService.getUserByEmail(email);
-            Order order = orderRepository.findById(orderId)
+            Order order = orderRepository.findWithUserById(orderId)
                     .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
 
             // Ensure user owns this order
-            if (!order.getUser().getId().equals(user.getId())) {
+            if (!order.getUser().getId().equals(userId)) {
                 throw new RuntimeException("Unauthorized to view this order");
             }
 
@@ -199,13 +275,4 @@ public class OrderService {
             throw e;
         }
     }
-
-    // Helper method to validate order status
-    private boolean isValidStatus(String status) {
-        return status.equals("ORDERED") ||     // Initial status when order is placed
-                status.equals("CONFIRMED") ||  // When merchant confirms the order
-                status.equals("SHIPPED") ||    // When order is shipped
-                status.equals("DELIVERED") ||  // When order is delivered
-                status.equals("CANCELLED");    // When order is cancelled
-    }
 }
\ No newline at end of file
@@ -8,6 +8,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -27,6 +31,9 @@ public class ProductService {
     private long lastCacheTime = 0;
     private final long CACHE_DURATION = 5 * 60 * 1000; // 5 minutes
 
+    // The cached products with their ordinals, replaced as a whole on refresh
+    private volatile Catalog catalog = new Catalog(List.of(), new IdentityHashMap<>(), 0);
+
     public List<Map<String, Object>> getAllProducts() {
         // Check if cache is still valid
         if (cachedProducts != null && (System.currentTimeMillis() - lastCacheTime) < CACHE_DURATION) {
@@ -66,6 +73,11 @@ public class ProductService {
             }
 
             // Cache the products
+            Map<Map<String, Object>, Integer> index = new IdentityHashMap<>(products.size() * 2);
+            for (int i = 0; i < products.size(); i++) {
+                index.put(products.get(i), i);
+            }
+            catalog = new Catalog(products, index, contentHash(response));
             cachedProducts = products;
             lastCacheTime = System.currentTimeMillis();
 
@@ -270,6 +282,59 @@ public class ProductService {
         return categories;
     }
 
+    // Version of the cached catalog's contents; ordinals are only meaningful within one version
+    public long getCatalogVersion() {
+        return catalog.version;
+    }
+
+    // Map products from the cached catalog to their ordinals, skipping products not in the cache
+    public int[] toOrdinals(List<?> products, int limit) {
+        Map<Map<String, Object>, Integer> index = catalog.index;
+        int[] ordinals = new int[Math.min(products.size(), limit)];
+        int count = 0;
+        for (Object product : products) {
+            if (count == ordinals.length) {
+                break;
+            }
+            Integer ordinal = index.get(product);
+            if (ordinal != null) {
+                ordinals[count++] = ordinal;
+            }
+        }
+        return count == ordinals.length ? ordinals : Arrays.copyOf(ordinals, count);
+    }
+
+    // Resolve ordinals back to products; returns null if the catalog's contents have changed since
+    public List<Map<String, Object>> fromOrdinals(int[] ordinals, long catalogVersion) {
+        Catalog current = catalog;
+        if (current.version == 0 || catalogVersion != current.version) {
+            return null;
+        }
+        List<Map<String, Object>> products = current.products;
+
+        List<Map<String, Object>> results = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            if (ordinal >= 0 && ordinal < products.size()) {
+                results.add(products.get(ordinal));
+            }
+        }
+        return results;
+    }
+
+    // First 64 bits of the response's SHA-256, so a changed catalog gets a different version
+    private static long contentHash(String response) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(response.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Double getProductPrice(Map<String, Object> product) {
+        return getDoubleValue(product, "price");
+    }
+
     // Helper methods to safely extract values from API response
     private String getStringValue(Map<String, Object> product, String key) {
         Object value = product.get(key);
@@ -309,4 +374,21 @@ public class ProductService {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Products in API order with the ordinal of each. The version is a hash of the API response:
+     * the 5-minute refresh usually returns the same catalog, so ordinals stored by a chat session
+     * keep resolving across refreshes until the catalog's contents actually change.
+     */
+    private static final class Catalog {
+        private final List<Map<String, Object>> products;
+        private final Map<Map<String, Object>, Integer> index;
+        private final long version;
+
+        Catalog(List<Map<String, Object>> products, Map<Map<String, Object>, Integer> index, long version) {
+            this.products = products;
+            this.index = index;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+-- The add-to-cart upserts need uk_cart_items_user_product_color as their ON CONFLICT target.
+-- Hibernate's schema update cannot create it while a cart still has duplicate lines for one
+-- product variant (it logs a warning and moves on), so merge those first: the most recently
+-- updated line is kept with the summed quantity, then the constraint is added. Once the
+-- constraint exists this does nothing. The DO body is single-quoted so the script runner
+-- keeps it whole.
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conname = ''uk_cart_items_user_product_color''
+                     AND conrelid = ''cart_items''::regclass) THEN
+        LOCK TABLE cart_items IN SHARE ROW EXCLUSIVE MODE;
+
+        UPDATE cart_items c
+        SET quantity = d.total_quantity
+        FROM (SELECT user_id, product_id, color, sum(quantity) AS total_quantity
+              FROM cart_items
+              GROUP BY user_id, product_id, color
+              HAVING count(*) > 1) d
+        WHERE c.user_id = d.user_id AND c.product_id = d.product_id AND c.color = d.color;
+
+        DELETE FROM cart_items
+        WHERE id IN (SELECT id
+                     FROM (SELECT id, row_number() OVER (PARTITION BY user_id, product_id, color
+                                                         ORDER BY updated_at DESC, id DESC) AS position
+                           FROM cart_items) ranked
+                     WHERE ranked.position > 1);
+
+        ALTER TABLE cart_items
+            ADD CONSTRAINT uk_cart_items_user_product_color UNIQUE (user_id, product_id, color);
+    END IF;
+END';
@@ -0,0 +1,8 @@
+-- Orders and order items had identity ids before they moved to pooled sequences. On a database
+-- that already has rows, move each sequence past the highest existing id. A sequence is only
+-- ever moved forward, so this is safe to run on every start and from several instances.
+SELECT setval('orders_seq', (SELECT max(id) FROM orders))
+WHERE (SELECT max(id) FROM orders) > (SELECT last_value FROM orders_seq);
+
+SELECT setval('order_items_seq', (SELECT max(id) FROM order_items))
+WHERE (SELECT max(id) FROM order_items) > (SELECT last_value FROM order_items_seq);
@@ -0,0 +1,32 @@
+-- orders.status used to be free text in mixed case ("ORDERED", "shipped"). Convert it in place to
+-- the smallint codes of OrderStatus, which the CASE below must match. Once the column is a
+-- smallint this does nothing. The DO body is single-quoted so the script runner keeps it whole.
+-- Hibernate's schema update never changes the type of an existing column, so this script is the
+-- only thing that converts it. A value outside the known names stops the conversion with an
+-- error naming it, rather than turning it into NULL (or a guessed status); fix those rows first.
+DO '
+DECLARE
+    unknown text;
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''orders''
+                 AND column_name = ''status'' AND data_type <> ''smallint'') THEN
+        SELECT string_agg(DISTINCT coalesce(status, ''<null>''), '', '') INTO unknown
+        FROM orders
+        WHERE status IS NULL OR upper(trim(status)) NOT IN
+              (''ORDERED'', ''PENDING'', ''CONFIRMED'', ''PROCESSING'', ''SHIPPED'', ''DELIVERED'', ''CANCELLED'');
+        IF unknown IS NOT NULL THEN
+            RAISE EXCEPTION ''orders.status has values with no OrderStatus: %. Update those orders, then restart.'', unknown;
+        END IF;
+
+        ALTER TABLE orders ALTER COLUMN status TYPE smallint USING (CASE upper(trim(status))
+            WHEN ''ORDERED'' THEN 0
+            WHEN ''PENDING'' THEN 1
+            WHEN ''CONFIRMED'' THEN 2
+            WHEN ''PROCESSING'' THEN 3
+            WHEN ''SHIPPED'' THEN 4
+            WHEN ''DELIVERED'' THEN 5
+            WHEN ''CANCELLED'' THEN 6
+        END);
+    END IF;
+END';
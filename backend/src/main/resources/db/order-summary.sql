@@ -0,0 +1,10 @@
+-- Orders placed before orders.total_items and orders.line_count existed got 0 for both when
+-- the columns were added. Fill them in from the order items. Only orders still at 0 are
+-- looked at, so once the backfill is done this finds nothing and is safe to run on every start.
+UPDATE orders o
+SET total_items = s.total_items, line_count = s.line_count
+FROM (SELECT i.order_id, sum(i.quantity) AS total_items, count(*) AS line_count
+      FROM order_items i JOIN orders pending ON pending.id = i.order_id
+      WHERE pending.line_count = 0
+      GROUP BY i.order_id) s
+WHERE o.id = s.order_id;
@@ -0,0 +1,162 @@
+package com.example.demo.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.example.demo.dto.ChatResponse;
+import com.example.demo.dto.OrderSummaryDto;
+import com.example.demo.model.OrderStatus;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.service.ChatBotService;
+import com.example.demo.service.ChatContextStore;
+import com.example.demo.service.ChatQueryAnalytics;
+import com.example.demo.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of ChatBotService.processMessage over a realistic message mix, against a
+ * synthetic catalog and a stubbed OrderRepository (no network, no database).
+ *
+ * Run with: mvn -Pbenchmark test -Djmh.include=ChatBotServiceBenchmark
+ * The gc profiler reports bytes allocated per message as gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChatBotServiceBenchmark {
+
+    private static final int CATALOG_SIZE = 200;
+    private static final Long USER_ID = 42L;
+
+    private static final String[] MESSAGES = {
+            "hello",
+            "help",
+            "laptop",
+            "mobiles",
+            "accessories",
+            "show me phones",
+            "show me watches",
+            "what's available",
+            "price range",
+            "show all products",
+            "latest products",
+            "find apple",
+            "i am looking for samsung",
+            "need wireless headphones",
+            "do you sell keyboards",
+            "something with a good camera",
+            "my orders",
+            "my latest order",
+            "order history",
+            "asdfgh"
+    };
+
+    private static final String[] FOLLOW_UPS = {
+            "laptop",
+            "the second one",
+            "cheaper ones",
+            "find apple",
+            "show me more expensive ones"
+    };
+
+    private ChatBotService chatBotService;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Keep console logging out of the measurement
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        String catalogJson = new ObjectMapper().writeValueAsString(syntheticCatalog());
+        ProductService productService = new ProductService();
+        ReflectionTestUtils.setField(productService, "restTemplate", new RestTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+                return (T) catalogJson;
+            }
+        });
+
+        chatBotService = new ChatBotService();
+        ReflectionTestUtils.setField(chatBotService, "productService", productService);
+        ReflectionTestUtils.setField(chatBotService, "orderRepository", stubOrderRepository());
+        ReflectionTestUtils.setField(chatBotService, "chatContextStore", new ChatContextStore(10_000, 30));
+        ReflectionTestUtils.setField(chatBotService, "chatQueryAnalytics", new ChatQueryAnalytics(2048, 4, 20));
+    }
+
+    @Benchmark
+    public ChatResponse processMessage() {
+        String message = MESSAGES[next];
+        next = (next + 1) % MESSAGES.length;
+        return chatBotService.processMessage(message, USER_ID);
+    }
+
+    @Benchmark
+    public ChatResponse processFollowUpConversation() {
+        String message = FOLLOW_UPS[next];
+        next = (next + 1) % FOLLOW_UPS.length;
+        return chatBotService.processMessage(message, USER_ID, "benchmark-session");
+    }
+
+    private static List<Map<String, Object>> syntheticCatalog() {
+        String[] categories = {"laptop", "mobile", "computer", "accessories", "electronics", "watch"};
+        String[] companies = {"apple", "samsung", "dell", "lenovo", "asus", "nokia", "sony"};
+        String[] nouns = {"Pro", "Air", "Max", "Lite", "Ultra", "Mini", "Plus"};
+        Random random = new Random(7);
+
+        List<Map<String, Object>> products = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            String category = categories[i % categories.length];
+            String company = companies[random.nextInt(companies.length)];
+
+            Map<String, Object> product = new LinkedHashMap<>();
+            product.put("id", "thapa" + i);
+            product.put("name", company + " " + category + " " + nouns[random.nextInt(nouns.length)] + " " + i);
+            product.put("company", company);
+            product.put("price", 5_000 + random.nextInt(500_000));
+            product.put("colors", List.of("#ff0000", "#000000", "#CDD0D0"));
+            product.put("image", "https://i.ibb.co/product-" + i + ".png");
+            product.put("description", "A " + category + " from " + company + " with a good camera, wireless charging and long battery life.");
+            product.put("category", category);
+            product.put("featured", i % 10 == 0);
+            product.put("stock", random.nextInt(20));
+            products.add(product);
+        }
+        return products;
+    }
+
+    // Only the order queries used by the chatbot are implemented
+    private static OrderRepository stubOrderRepository() {
+        List<OrderSummaryDto> orders = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 12; id > 0; id--) {
+            orders.add(new OrderSummaryDto(id, now.minusDays(12 - id), OrderStatus.ORDERED, 199.99 * id, (int) id, 1));
+        }
+
+        return (OrderRepository) Proxy.newProxyInstance(
+                OrderRepository.class.getClassLoader(),
+                new Class<?>[]{OrderRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findOrderSummariesByUserId":
+                            int limit = ((Pageable) args[1]).getPageSize();
+                            return orders.subList(0, Math.min(limit, orders.size()));
+                        case "countByUser_Id":
+                            return (long) orders.size();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
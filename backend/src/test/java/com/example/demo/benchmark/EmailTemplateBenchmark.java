@@ -0,0 +1,173 @@
+package com.example.demo.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.OrderStatus;
+import com.example.demo.service.EmailService;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order confirmation rendering: the precompiled templates in EmailService against the
+ * String.format rendering they replaced (kept below as the baseline), for small and large orders.
+ *
+ * Run with: mvn -Pbenchmark test -Djmh.include=EmailTemplateBenchmark
+ * The gc profiler reports bytes allocated per email as gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EmailTemplateBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private EmailService emailService;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        emailService = new EmailService(new RestTemplate());
+        order = syntheticOrder(items);
+
+        // Both renderings must produce the same email, or the comparison means nothing
+        if (!legacyOrderConfirmation().equals(templateOrderConfirmation())) {
+            throw new IllegalStateException("Template output differs from the String.format rendering");
+        }
+    }
+
+    @Benchmark
+    public String templateOrderConfirmation() {
+        return emailService.buildOrderConfirmationEmailHtml("Benchmark User", order);
+    }
+
+    @Benchmark
+    public String templateOrderStatusUpdate() {
+        return emailService.buildOrderStatusUpdateEmailHtml("Benchmark User", order, "processing", "shipped");
+    }
+
+    @Benchmark
+    public String legacyOrderConfirmation() {
+        return legacyOrderConfirmationHtml("Benchmark User", order);
+    }
+
+    private static Order syntheticOrder(int itemCount) {
+        Order order = new Order();
+        order.setId(123456L);
+        order.setCreatedAt(LocalDateTime.of(2025, 3, 14, 10, 30));
+        order.setStatus(OrderStatus.ORDERED);
+
+        List<OrderItem> orderItems = new ArrayList<>(itemCount);
+        double subtotal = 0;
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.setProductName("Wireless Headphones Model " + i);
+            item.setColor(i % 2 == 0 ? "#000000" : "#ff0000");
+            item.setQuantity(1 + i % 3);
+            item.setPrice(1499.5 + i * 10.25);
+            orderItems.add(item);
+            subtotal += item.getItemTotal();
+        }
+        order.setItems(orderItems);
+        order.setSubtotal(subtotal);
+        order.setShippingFee(50.0);
+        order.setOrderTotal(subtotal + 50.0);
+        return order;
+    }
+
+    // EmailService.buildOrderConfirmationEmailHtml before the precompiled templates
+    private static String legacyOrderConfirmationHtml(String userName, Order order) {
+        StringBuilder itemsHtml = new StringBuilder();
+
+        if (order.getItems() != null && !order.getItems().isEmpty()) {
+            for (OrderItem item : order.getItems()) {
+                itemsHtml.append(String.format("""
+                    <tr>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee;">%s (%s)</td>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: center;">%d</td>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: right;">₹%.2f</td>
+                        <td style="padding: 10px; border-bottom: 1px solid #eee; text-align: right;">₹%.2f</td>
+                    </tr>
+                    """,
+                        item.getProductName(),
+                        item.getColor(),
+                        item.getQuantity(),
+                        item.getPrice(),
+                        item.getItemTotal()));
+            }
+        }
+
+        return String.format("""
+            <html>
+            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
+                <div style="max-width: 700px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 10px;">
+                    <h2 style="color: #28a745;">Order Confirmed!</h2>
+                    <p>Hello %s,</p>
+                    <p>Thank you for your order! Your order has been confirmed and is being processed.</p>
+
+                    <div style="background-color: #f8f9fa; padding: 20px; border-radius: 5px; margin: 20px 0;">
+                        <h3 style="margin-top: 0;">Order Details</h3>
+                        <p><strong>Order ID:</strong> #%d</p>
+                        <p><strong>Order Date:</strong> %s</p>
+                        <p><strong>Status:</strong> %s</p>
+                    </div>
+
+                    <h3>Items Ordered</h3>
+                    <table style="width: 100%%; border-collapse: collapse; margin: 20px 0;">
+                        <thead>
+                            <tr style="background-color: #007bff; color: white;">
+                                <th style="padding: 12px; text-align: left;">Item</th>
+                                <th style="padding: 12px; text-align: center;">Qty</th>
+                                <th style="padding: 12px; text-align: right;">Price</th>
+                                <th style="padding: 12px; text-align: right;">Total</th>
+                            </tr>
+                        </thead>
+                        <tbody>
+                            %s
+                        </tbody>
+                    </table>
+
+                    <div style="text-align: right; margin: 20px 0;">
+                        <p><strong>Subtotal: ₹%.2f</strong></p>
+                        <p><strong>Shipping: ₹%.2f</strong></p>
+                        <p style="font-size: 18px; color: #007bff;"><strong>TOTAL: ₹%.2f</strong></p>
+                    </div>
+
+                    <div style="background-color: #e7f3ff; padding: 15px; border-radius: 5px; margin: 20px 0;">
+                        <h4 style="margin-top: 0;">What's Next?</h4>
+                        <ul>
+                            <li>We'll email you when your order ships</li>
+                            <li>Track your order in your account</li>
+                            <li>Contact support for any questions</li>
+                        </ul>
+                    </div>
+
+                    <p>Thank you for shopping with us!</p>
+                    <hr>
+                    <p style="color: #666; font-size: 12px;">Best regards,<br>Your Ecommerce Store Team</p>
+                </div>
+            </body>
+            </html>
+            """,
+                userName != null ? userName : "Valued Customer",
+                order.getId(),
+                order.getCreatedAt().toString().split("T")[0],
+                order.getStatus().getValue().substring(0, 1).toUpperCase() + order.getStatus().getValue().substring(1).toLowerCase(),
+                itemsHtml.toString(),
+                order.getSubtotal(),
+                order.getShippingFee(),
+                order.getOrderTotal());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatusTest {
+
+    @Test
+    void ordersOnlyMoveForward() {
+        assertTrue(OrderStatus.ORDERED.canTransitionTo(OrderStatus.CONFIRMED));
+        assertTrue(OrderStatus.CONFIRMED.canTransitionTo(OrderStatus.SHIPPED));
+        assertTrue(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.DELIVERED));
+
+        assertFalse(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.PROCESSING));
+        assertFalse(OrderStatus.CONFIRMED.canTransitionTo(OrderStatus.ORDERED));
+        assertFalse(OrderStatus.PROCESSING.canTransitionTo(OrderStatus.DELIVERED));
+    }
+
+    @Test
+    void ordersCanBeCancelledUntilShipped() {
+        for (OrderStatus status : new OrderStatus[]{OrderStatus.ORDERED, OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PROCESSING}) {
+            assertTrue(status.canTransitionTo(OrderStatus.CANCELLED), status.getValue());
+        }
+        assertFalse(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.CANCELLED));
+    }
+
+    @Test
+    void closedOrdersAreFinal() {
+        for (OrderStatus next : OrderStatus.values()) {
+            assertFalse(OrderStatus.DELIVERED.canTransitionTo(next));
+            assertFalse(OrderStatus.CANCELLED.canTransitionTo(next));
+        }
+    }
+
+    @Test
+    void parsesAnyCaseAndCodes() {
+        assertEquals(OrderStatus.SHIPPED, OrderStatus.from(" Shipped "));
+        for (OrderStatus status : OrderStatus.values()) {
+            assertEquals(status, OrderStatus.fromCode(status.getCode()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> OrderStatus.from("lost"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The throttled endpoints and the 429 response a client gets once its bucket is empty.
+ */
+class RateLimitFilterTest {
+
+    // Chat: burst of 2, one token a minute; contact: burst of 1
+    private final RateLimitFilter filter = new RateLimitFilter(2, 1, 1, 1, 100);
+
+    @Test
+    void requestsOverLimitGet429WithRetryAfter() throws Exception {
+        assertEquals(200, send("POST", "/api/chat/message", "10.0.0.1").getStatus());
+        assertEquals(200, send("POST", "/api/chat/message", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse rejected = send("POST", "/api/chat/message", "10.0.0.1");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("60", rejected.getHeader("Retry-After"));
+        assertEquals("application/json", rejected.getContentType());
+        assertTrue(rejected.getContentAsString().contains("try again in 60 seconds"), rejected.getContentAsString());
+    }
+
+    @Test
+    void rejectedRequestDoesNotReachController() throws Exception {
+        send("POST", "/api/contact/send", "10.0.0.2");
+
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request("POST", "/api/contact/send", "10.0.0.2"), new MockHttpServletResponse(), chain);
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void limitsArePerClientAndPerEndpoint() throws Exception {
+        send("POST", "/api/contact/send", "10.0.0.3");
+        assertEquals(429, send("POST", "/api/contact/send", "10.0.0.3").getStatus());
+
+        assertEquals(200, send("POST", "/api/contact/send", "10.0.0.4").getStatus());
+        assertEquals(200, send("POST", "/api/chat/message", "10.0.0.3").getStatus());
+    }
+
+    @Test
+    void otherPathsAndPreflightAreNotThrottled() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send("GET", "/api/products", "10.0.0.5").getStatus());
+            assertEquals(200, send("OPTIONS", "/api/contact/send", "10.0.0.5").getStatus());
+        }
+        assertEquals(200, send("POST", "/api/contact/send", "10.0.0.5").getStatus());
+    }
+
+    private MockHttpServletResponse send(String method, String path, String client) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request(method, path, client), response, chain);
+        if (response.getStatus() == 200) {
+            assertNotNull(chain.getRequest(), "allowed request was not passed on");
+        }
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(client);
+        return request;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The per-client GCRA limiter: burst, refill and callers racing on one bucket.
+ */
+class RateLimiterTest {
+
+    @Test
+    void burstUpToCapacityThenRejects() {
+        // Refill is slow enough that no token is earned during the test
+        RateLimiter limiter = new RateLimiter("test", 5, 1, 100);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("client"), "request " + i);
+        }
+        long wait = limiter.tryAcquire("client");
+        assertTrue(wait > 0 && wait <= TimeUnit.MINUTES.toNanos(1), "wait " + wait);
+        assertEquals(5, limiter.getAllowedCount());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void clientsHaveSeparateBuckets() {
+        RateLimiter limiter = new RateLimiter("test", 1, 1, 100);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0, limiter.tryAcquire("b"));
+        assertEquals(2, limiter.getTrackedClients());
+    }
+
+    @Test
+    void tokenIsAvailableAgainAfterReportedWait() throws InterruptedException {
+        // One token every 500 ms, so a slow machine does not earn a second one mid-test
+        RateLimiter limiter = new RateLimiter("test", 2, 120, 100);
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertEquals(0, limiter.tryAcquire("client"));
+
+        long wait = limiter.tryAcquire("client");
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(500), "wait " + wait);
+
+        TimeUnit.NANOSECONDS.sleep(wait + TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(0, limiter.tryAcquire("client"));
+        // Only one token was earned, not the whole burst
+        assertTrue(limiter.tryAcquire("client") > 0);
+    }
+
+    @Test
+    void concurrentCallersNeverExceedCapacity() throws Exception {
+        int capacity = 100;
+        RateLimiter limiter = new RateLimiter("test", capacity, 1, 100);
+        int threads = 8;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] callers = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                callers[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.tryAcquire("shared") == 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> caller : callers) {
+                caller.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(capacity, granted.get());
+        assertEquals(capacity, limiter.getAllowedCount());
+        assertEquals(threads * 1000L - capacity, limiter.getRejectedCount());
+    }
+
+    @Test
+    void trackedClientsStayBoundedByCap() {
+        RateLimiter limiter = new RateLimiter("test", 1, 1, 160);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+        assertTrue(limiter.getTrackedClients() <= 160, "tracked " + limiter.getTrackedClients());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the abandoned cart cleanup against the real cart_items table. Carts written by other
+ * tests in the shared database are recent, so only the carts made here are ever past the cutoff.
+ */
+class AbandonedCartCleanupJobTest extends PostgresServiceTest {
+
+    private static final int ABANDONED_AFTER_DAYS = 30;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CartWriteBehindCache cartCache;
+
+    @Autowired
+    private CartVersionTracker cartVersions;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void removeLeftoverAbandonedCarts() {
+        // Each test counts the carts it abandons, so start without any
+        job(jdbcTemplate, 500, 60, 0).removeAbandonedCarts();
+    }
+
+    @Test
+    void onlyCartsPastCutoffAreRemoved() {
+        Long abandoned = cart(daysAgo(40), daysAgo(35));
+        Long touchedRecently = cart(daysAgo(40), daysAgo(1));
+        Long fresh = cart(LocalDateTime.now());
+
+        Map<String, Object> report = job(jdbcTemplate, 500, 60, 0).removeAbandonedCarts();
+
+        assertEquals("completed", report.get("status"));
+        assertEquals(1L, report.get("cartsDeleted"));
+        assertEquals(2L, report.get("rowsDeleted"));
+        assertEquals(0, cartRows(abandoned));
+        // One recent line keeps the whole cart, old lines included
+        assertEquals(2, cartRows(touchedRecently));
+        assertEquals(1, cartRows(fresh));
+    }
+
+    @Test
+    void batchesAdvanceByUserId() {
+        List<Long> users = abandonedCarts(25);
+        RecordingJdbcTemplate recording = new RecordingJdbcTemplate(dataSource, false);
+
+        Map<String, Object> report = job(recording, 10, 60, 0).removeAbandonedCarts();
+
+        assertEquals("completed", report.get("status"));
+        assertEquals(3, report.get("batches"));
+        assertEquals(25L, report.get("cartsDeleted"));
+        // Each batch starts after the last cart of the one before
+        assertEquals(List.of(0L, users.get(9), users.get(19), users.get(24)), recording.cursors);
+        users.forEach(user -> assertEquals(0, cartRows(user)));
+    }
+
+    @Test
+    void timedOutBatchIsRetriedAtHalfSize() {
+        List<Long> users = abandonedCarts(30);
+        RecordingJdbcTemplate recording = new RecordingJdbcTemplate(dataSource, true);
+
+        Map<String, Object> report = job(recording, 40, 60, 0).removeAbandonedCarts();
+
+        assertEquals("completed", report.get("status"));
+        assertEquals(List.of(40, 20, 20, 20), recording.limits);
+        assertEquals(30L, report.get("cartsDeleted"));
+        users.forEach(user -> assertEquals(0, cartRows(user)));
+    }
+
+    @Test
+    void runStopsAtTimeLimit() {
+        List<Long> users = abandonedCarts(25);
+
+        Map<String, Object> report = job(jdbcTemplate, 10, 1, 1100).removeAbandonedCarts();
+
+        assertEquals("stopped after the run time limit", report.get("status"));
+        assertEquals(1, report.get("batches"));
+        assertEquals(10L, report.get("cartsDeleted"));
+        assertEquals(1, cartRows(users.get(24)));
+    }
+
+    private AbandonedCartCleanupJob job(JdbcTemplate template, int batchSize, long maxRunSeconds, long pauseMillis) {
+        return new AbandonedCartCleanupJob(template, transactionTemplate, cartCache, cartVersions,
+                true, ABANDONED_AFTER_DAYS, batchSize, 500, maxRunSeconds, pauseMillis);
+    }
+
+    private List<Long> abandonedCarts(int count) {
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(cart(daysAgo(31 + i)));
+        }
+        return users;
+    }
+
+    // A user whose cart has one line per updated_at
+    private Long cart(LocalDateTime... updatedAt) {
+        User user = userRepository.save(User.builder()
+                .email("cleanup-" + System.nanoTime() + "@example.com").password("secret").name("Cleanup User").build());
+        for (int i = 0; i < updatedAt.length; i++) {
+            jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, product_name, color, price, quantity, updated_at) "
+                    + "VALUES (?, ?, 'Product', 'red', 1.0, 1, ?)", user.getId(), (long) i + 1, Timestamp.valueOf(updatedAt[i]));
+        }
+        return user.getId();
+    }
+
+    private int cartRows(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM cart_items WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private static LocalDateTime daysAgo(int days) {
+        return LocalDateTime.now().minusDays(days);
+    }
+
+    // Records the cursor and size of each batch; can make the first batch overrun its statement timeout
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+        private final List<Long> cursors = new ArrayList<>();
+        private final List<Integer> limits = new ArrayList<>();
+        private boolean timeOutFirstBatch;
+
+        RecordingJdbcTemplate(DataSource dataSource, boolean timeOutFirstBatch) {
+            super(dataSource);
+            this.timeOutFirstBatch = timeOutFirstBatch;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            cursors.add((Long) args[0]);
+            limits.add((Integer) args[2]);
+            if (timeOutFirstBatch) {
+                timeOutFirstBatch = false;
+                // Longer than the batch's statement timeout, so Postgres cancels it (SQLSTATE 57014)
+                queryForObject("SELECT pg_sleep(2)::text", String.class);
+            }
+            super.query(sql, rch, args);
+        }
+    }
+}
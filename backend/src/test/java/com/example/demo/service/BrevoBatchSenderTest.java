@@ -0,0 +1,173 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs BrevoBatchSender against a local HTTP stub of the Brevo send endpoint, which answers
+ * every request after a fixed delay, like a remote API would.
+ */
+class BrevoBatchSenderTest {
+
+    private static final int STUB_LATENCY_MS = 20;
+    private static final int MAX_BATCH_SIZE = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Set<String> recipients = ConcurrentHashMap.newKeySet();
+
+    private HttpServer stub;
+    private ExecutorService stubThreads;
+    private String url;
+    private BrevoBatchSender sender;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/v3/smtp/email", this::handle);
+        stubThreads = Executors.newFixedThreadPool(8);
+        stub.setExecutor(stubThreads);
+        stub.start();
+        url = "http://127.0.0.1:" + stub.getAddress().getPort() + "/v3/smtp/email";
+        sender = new BrevoBatchSender(new RestTemplate(), url, "test-key", "shop@example.com", "Shop",
+                MAX_BATCH_SIZE, 50, 4);
+    }
+
+    @AfterEach
+    void stopStub() throws InterruptedException {
+        sender.shutdown();
+        stub.stop(0);
+        stubThreads.shutdownNow();
+    }
+
+    @Test
+    void bulkNotificationsAreBatched() throws Exception {
+        int emails = 300;
+        int baselineEmails = 50;
+
+        // Baseline: one request per email, as EmailService sends them (a smaller sample, compared by rate)
+        EmailService emailService = new EmailService(new RestTemplate());
+        ReflectionTestUtils.setField(emailService, "brevoApiUrl", url);
+        ReflectionTestUtils.setField(emailService, "brevoApiKey", "test-key");
+        ReflectionTestUtils.setField(emailService, "senderEmail", "shop@example.com");
+        ReflectionTestUtils.setField(emailService, "senderName", "Shop");
+        Order order = order();
+        long begin = System.nanoTime();
+        for (int i = 0; i < baselineEmails; i++) {
+            assertTrue(emailService.sendOrderStatusUpdateEmail("single-" + i + "@example.com", "Customer", order, "processing", "shipped"));
+        }
+        double sequentialRate = baselineEmails / ((System.nanoTime() - begin) / 1e9);
+        assertEquals(baselineEmails, requests.getAndSet(0));
+
+        String html = emailService.buildOrderStatusUpdateEmailHtml("Customer", order, "processing", "shipped");
+        begin = System.nanoTime();
+        List<CompletableFuture<Void>> results = new ArrayList<>(emails);
+        for (int i = 0; i < emails; i++) {
+            results.add(sender.send("batch-" + i + "@example.com", "Order Update", html));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        double batchedRate = emails / ((System.nanoTime() - begin) / 1e9);
+
+        for (int i = 0; i < emails; i++) {
+            assertTrue(recipients.contains("batch-" + i + "@example.com"), "missing recipient " + i);
+        }
+        assertTrue(requests.get() <= emails / MAX_BATCH_SIZE + 4, requests.get() + " requests for " + emails + " emails");
+
+        System.out.printf("[brevo] %.0f emails/s one by one, %.0f emails/s batched (%d emails in %d requests)%n",
+                sequentialRate, batchedRate, emails, requests.get());
+        assertTrue(batchedRate / sequentialRate >= 10, "batched sends only " + batchedRate / sequentialRate + "x faster");
+    }
+
+    @Test
+    void partialBatchIsSentAfterMaxDelay() throws Exception {
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(sender.send("few-" + i + "@example.com", "Subject", "<p>Hi</p>"));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(1, requests.get());
+        assertEquals(3, recipients.size());
+    }
+
+    @Test
+    void rejectedBatchIsResentOneByOne() throws Exception {
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String to = i == 2 ? "invalid-address" : "ok-" + i + "@example.com";
+            results.add(sender.send(to, "Subject", "<p>Hi</p>"));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Void> result = results.get(i);
+            if (i == 2) {
+                assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            } else {
+                result.get(5, TimeUnit.SECONDS);
+                assertTrue(recipients.contains("ok-" + i + "@example.com"));
+            }
+        }
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(42L);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setStatus(OrderStatus.SHIPPED);
+        order.setItems(List.of());
+        order.setOrderTotal(999.0);
+        return order;
+    }
+
+    // Accepts a single email or a messageVersions batch; any recipient without an @ fails the whole request
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(STUB_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        requests.incrementAndGet();
+
+        JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+        List<String> to = new ArrayList<>();
+        if (body.has("messageVersions")) {
+            for (JsonNode version : body.get("messageVersions")) {
+                to.add(version.get("to").get(0).get("email").asText());
+            }
+        } else {
+            to.add(body.get("to").get(0).get("email").asText());
+        }
+
+        boolean valid = to.stream().allMatch(email -> email.contains("@"));
+        if (valid) {
+            recipients.addAll(to);
+        }
+        byte[] response = (valid ? "{\"messageIds\":[]}" : "{\"code\":\"invalid_parameter\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(valid ? 201 : 400, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CartItemDto;
+import com.example.demo.dto.CartOperationDto;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.CustomUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartBatchTest extends PostgresServiceTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void signIn() {
+        User user = userRepository.save(User.builder()
+                .email("batch-" + System.nanoTime() + "@example.com").password("secret").name("Batch User").build());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of()));
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // The adds of one run go out as a single multi-row upsert, so duplicates must be merged first
+    @Test
+    void duplicateAddsInOneRunAreMerged() {
+        List<CartItemDto> cart = cartService.applyBatch(List.of(
+                add("101", "red", 1, 10.0),
+                add("101", "red", 2, 12.0),
+                add("202", "blue", 1, 5.0),
+                add(101L, "red", 4, 15.0)));
+
+        assertEquals(2, cart.size());
+        CartItemDto red = line(cart, 101L, "red");
+        assertEquals(7, red.getQuantity());
+        assertEquals(15.0, red.getPrice());
+        assertEquals(1, line(cart, 202L, "blue").getQuantity());
+    }
+
+    @Test
+    void duplicateAddsAddToExistingLine() {
+        cartService.applyBatch(List.of(add("101", "red", 1, 10.0)));
+
+        List<CartItemDto> cart = cartService.applyBatch(List.of(
+                add("101", "red", 2, 10.0),
+                add("101", "red", 3, 10.0)));
+
+        assertEquals(1, cart.size());
+        assertEquals(6, line(cart, 101L, "red").getQuantity());
+    }
+
+    private static CartOperationDto add(Object productId, String color, int quantity, double price) {
+        return new CartOperationDto("add", null, productId, "Product " + productId, "product.jpg", color, price, quantity);
+    }
+
+    private static CartItemDto line(List<CartItemDto> cart, Long productId, String color) {
+        return cart.stream()
+                .filter(item -> item.getProductId().equals(productId) && item.getColor().equals(color))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no cart line for " + productId + "/" + color));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CartItemDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs CartWriteBehindCache against a JdbcTemplate stub that records the batched writes and can
+ * hold the first one open, to check how a flush behaves while another write is still running.
+ */
+class CartWriteBehindCacheTest {
+
+    private static final long USER_ID = 7L;
+    private static final long ITEM_ID = 11L;
+
+    private final RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+    private final CartWriteBehindCache cache = new CartWriteBehindCache(jdbcTemplate, true, 100, 200);
+
+    @Test
+    void flushWaitsForRunningWriteAndWritesNewerChanges() throws Exception {
+        cache.fill(USER_ID, List.of(new CartItemDto(ITEM_ID, 1L, "Phone", "img", "#000", 10.0, 1, USER_ID, "a@b.c")));
+        cache.updateQuantity(USER_ID, ITEM_ID, 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> scheduled = executor.submit(cache::flushAll);
+            assertTrue(jdbcTemplate.firstWriteStarted.await(5, TimeUnit.SECONDS));
+
+            cache.updateQuantity(USER_ID, ITEM_ID, 3);
+            Future<?> flush = executor.submit(() -> cache.flush(USER_ID));
+
+            // Still blocked behind the scheduled write, which hasn't finished
+            assertThrows(TimeoutException.class, () -> flush.get(200, TimeUnit.MILLISECONDS));
+
+            jdbcTemplate.releaseFirstWrite.countDown();
+            scheduled.get(5, TimeUnit.SECONDS);
+            flush.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The newer quantity is written after the older one, never before or instead of it
+        assertEquals(List.of(2, 3), jdbcTemplate.writtenQuantities());
+    }
+
+    @Test
+    void flushWithNothingPendingWritesNothing() {
+        cache.fill(USER_ID, List.of(new CartItemDto(ITEM_ID, 1L, "Phone", "img", "#000", 10.0, 1, USER_ID, "a@b.c")));
+        jdbcTemplate.releaseFirstWrite.countDown();
+
+        cache.flush(USER_ID);
+        cache.updateQuantity(USER_ID, ITEM_ID, 4);
+        cache.flush(USER_ID);
+        cache.flush(USER_ID);
+
+        assertEquals(List.of(4), jdbcTemplate.writtenQuantities());
+    }
+
+    @Test
+    void clearedInTransactionTakesEffectAfterCommit() {
+        cache.fill(USER_ID, List.of(new CartItemDto(ITEM_ID, 1L, "Phone", "img", "#000", 10.0, 1, USER_ID, "a@b.c")));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.cleared(USER_ID);
+            assertEquals(1, cache.getCart(USER_ID).size(), "cleared before the checkout committed");
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(cache.getCart(USER_ID).isEmpty());
+    }
+
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+        private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        private final CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+        private final List<Object[]> writes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            writes.addAll(batchArgs);
+            firstWriteStarted.countDown();
+            try {
+                if (!releaseFirstWrite.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Write was never released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return new int[batchArgs.size()];
+        }
+
+        List<Integer> writtenQuantities() {
+            List<Integer> quantities = new ArrayList<>();
+            for (Object[] args : writes) {
+                quantities.add((Integer) args[0]);
+            }
+            return quantities;
+        }
+    }
+}
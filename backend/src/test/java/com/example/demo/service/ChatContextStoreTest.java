@@ -0,0 +1,72 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatContextStoreTest {
+
+    @Test
+    void storesAndReturnsContext() {
+        ChatContextStore store = new ChatContextStore(100, 30);
+        store.put("session", new int[]{3, 1, 4}, 7L, 1);
+
+        ChatContextStore.Context context = store.get("session");
+        assertNotNull(context);
+        assertArrayEquals(new int[]{3, 1, 4}, context.getProductOrdinals());
+        assertEquals(7L, context.getCatalogVersion());
+        assertEquals(1, context.getSelected());
+        assertNull(store.get("other"));
+    }
+
+    @Test
+    void laterPutReplacesContext() {
+        ChatContextStore store = new ChatContextStore(100, 30);
+        store.put("session", new int[]{1}, 1L, -1);
+        store.put("session", new int[]{2, 3}, 2L, 0);
+
+        assertArrayEquals(new int[]{2, 3}, store.get("session").getProductOrdinals());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void expiredSessionsAreDropped() {
+        ChatContextStore store = new ChatContextStore(100, 0);
+        store.put("session", new int[]{1}, 1L, -1);
+        sleep(5);
+
+        assertNull(store.get("session"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void sessionCountIsBounded() {
+        int maxSessions = 160;
+        ChatContextStore store = new ChatContextStore(maxSessions, 30);
+        for (int i = 0; i < 10_000; i++) {
+            store.put("session-" + i, new int[]{i}, 1L, -1);
+        }
+
+        assertTrue(store.size() <= maxSessions, store.size() + " sessions kept");
+        // The most recent session is always kept
+        assertNotNull(store.get("session-9999"));
+    }
+
+    @Test
+    void unusableSessionIdsAreReplaced() {
+        ChatContextStore store = new ChatContextStore(100, 30);
+        assertEquals("abc", store.resolveSessionId("abc"));
+        assertNotNull(store.resolveSessionId(null));
+        assertNotEquals("", store.resolveSessionId(" "));
+        String tooLong = "x".repeat(65);
+        assertNotEquals(tooLong, store.resolveSessionId(tooLong));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
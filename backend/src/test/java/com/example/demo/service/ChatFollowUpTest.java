@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Which chat messages are read as follow-ups to the previous product results, and which are
+ * new requests that must get a fresh answer.
+ */
+class ChatFollowUpTest {
+
+    private final ChatBotService chatBotService = new ChatBotService();
+
+    @Test
+    void ordinalReferencesSelectFromPreviousResults() {
+        assertEquals(1, select("the second one"));
+        assertEquals(0, select("show me the 1st product"));
+        assertEquals(9, select("what about the tenth item"));
+        assertEquals(4, select("last one please", 5));
+    }
+
+    @Test
+    void outOfRangeOrdinalResolvesToNothing() {
+        ChatBotService.FollowUp followUp = chatBotService.parseFollowUp("the fifth one");
+        assertNotNull(followUp);
+        assertEquals(-1, followUp.positionIn(3));
+    }
+
+    @Test
+    void priceFollowUpsResortPreviousResults() {
+        ChatBotService.FollowUp cheaper = chatBotService.parseFollowUp("cheaper ones");
+        assertNotNull(cheaper);
+        assertFalse(cheaper.isSelection());
+        assertTrue(cheaper.isCheaper());
+
+        ChatBotService.FollowUp pricier = chatBotService.parseFollowUp("show me more expensive ones");
+        assertNotNull(pricier);
+        assertFalse(pricier.isSelection());
+        assertFalse(pricier.isCheaper());
+
+        assertNotNull(chatBotService.parseFollowUp("any cheaper options?"));
+    }
+
+    @Test
+    void newRequestsAreNotFollowUps() {
+        assertNull(chatBotService.parseFollowUp("status of order #12"));
+        assertNull(chatBotService.parseFollowUp("show product number 5"));
+        assertNull(chatBotService.parseFollowUp("show me cheaper laptops"));
+        assertNull(chatBotService.parseFollowUp("cheapest wireless headphones"));
+        assertNull(chatBotService.parseFollowUp("my orders"));
+        assertNull(chatBotService.parseFollowUp("the second phone"));
+    }
+
+    @Test
+    void plainMessagesAreNotFollowUps() {
+        assertNull(chatBotService.parseFollowUp("hello"));
+        assertNull(chatBotService.parseFollowUp("find apple"));
+    }
+
+    private int select(String message) {
+        return select(message, 10);
+    }
+
+    private int select(String message, int results) {
+        ChatBotService.FollowUp followUp = chatBotService.parseFollowUp(message);
+        assertNotNull(followUp, message);
+        assertTrue(followUp.isSelection(), message);
+        return followUp.positionIn(results);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CartOperationDto;
+import com.example.demo.dto.CheckoutRequest;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.OrderStatus;
+import com.example.demo.model.User;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.CustomUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checkout of the stored cart, which builds the order and its items in one native statement.
+ */
+class CheckoutCartTest extends PostgresServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void signIn() {
+        user = userRepository.save(User.builder()
+                .email("checkout-" + System.nanoTime() + "@example.com").password("secret").name("Checkout User").build());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of()));
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void orderTotalsAndItemsComeFromStoredCart() {
+        cartService.applyBatch(List.of(add(1, "red", 2, 10.0), add(2, "blue", 1, 5.5), add(3, "green", 3, 1.25)));
+        LocalDateTime before = LocalDateTime.now();
+
+        Order order = orderService.checkoutCart(new CheckoutRequest(4.0, true), user);
+
+        assertEquals(OrderStatus.ORDERED, order.getStatus());
+        assertEquals(29.25, order.getSubtotal(), 1e-9);
+        assertEquals(4.0, order.getShippingFee(), 1e-9);
+        assertEquals(33.25, order.getOrderTotal(), 1e-9);
+        assertEquals(6, order.getTotalItems());
+        assertEquals(3, order.getLineCount());
+        // Stamped with the application's clock, like orders saved through the entity
+        assertFalse(order.getCreatedAt().isBefore(before.minus(Duration.ofMillis(1))));
+        assertFalse(order.getCreatedAt().isAfter(LocalDateTime.now()));
+
+        List<OrderItem> items = new ArrayList<>(order.getItems());
+        items.sort((a, b) -> a.getId().compareTo(b.getId()));
+        assertEquals(List.of("Product 1", "Product 2", "Product 3"), items.stream().map(OrderItem::getProductName).toList());
+        assertEquals(List.of(2, 1, 3), items.stream().map(OrderItem::getQuantity).toList());
+        assertEquals(List.of("red", "blue", "green"), items.stream().map(OrderItem::getColor).toList());
+
+        assertEquals(0, cartRows());
+    }
+
+    @Test
+    void cartIsKeptUnlessCleared() {
+        cartService.applyBatch(List.of(add(1, "red", 1, 10.0)));
+
+        orderService.checkoutCart(new CheckoutRequest(0.0, false), user);
+
+        assertEquals(1, cartRows());
+    }
+
+    @Test
+    void emptyCartPlacesNoOrder() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.checkoutCart(new CheckoutRequest(0.0, true), user));
+        assertEquals(0, orderRepository.countByUser_Id(user.getId()));
+    }
+
+    // Item ids are numbered within pooled blocks, which must not overlap the ones Hibernate hands out
+    @Test
+    void itemIdsFromBlocksDoNotCollideWithEntityIds() {
+        List<CartOperationDto> adds = new ArrayList<>();
+        for (int i = 0; i < OrderRepository.ID_BLOCK_SIZE + 20; i++) {
+            adds.add(add(100 + i, "black", 1, 1.0));
+        }
+        cartService.applyBatch(adds);
+        Long before = sequenceValue();
+
+        Order checkedOut = orderService.checkoutCart(new CheckoutRequest(0.0, true), user);
+        Order saved = orderRepository.save(entityOrder(5));
+        cartService.applyBatch(List.of(add(1, "red", 1, 1.0)));
+        Order again = orderService.checkoutCart(new CheckoutRequest(0.0, true), user);
+
+        assertEquals(OrderRepository.ID_BLOCK_SIZE + 20, checkedOut.getItems().size());
+        Set<Long> ids = new HashSet<>();
+        for (Order order : List.of(checkedOut, saved, again)) {
+            for (OrderItem item : orderRepository.findWithItemsById(order.getId()).orElseThrow().getItems()) {
+                assertTrue(ids.add(item.getId()), "duplicate item id " + item.getId());
+            }
+        }
+        // 70 items take two blocks and the third checkout one more; the entity save at most one
+        assertTrue(sequenceValue() - before <= 4L * OrderRepository.ID_BLOCK_SIZE, "sequence moved by " + (sequenceValue() - before));
+    }
+
+    private Order entityOrder(int itemCount) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setStatus(OrderStatus.ORDERED);
+        order.setSubtotal((double) itemCount);
+        order.setShippingFee(0.0);
+        order.setOrderTotal((double) itemCount);
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProductName("Entity " + i);
+            item.setColor("white");
+            item.setPrice(1.0);
+            item.setQuantity(1);
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+
+    private int cartRows() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM cart_items WHERE user_id = ?", Integer.class, user.getId());
+    }
+
+    private Long sequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM order_items_seq", Long.class);
+    }
+
+    private static CartOperationDto add(long productId, String color, int quantity, double price) {
+        return new CartOperationDto("add", null, productId, "Product " + productId, "product.jpg", color, price, quantity);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.demo.service;
+
+import com.example.demo.model.EmailOutbox;
+import com.example.demo.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EmailOutboxDispatcher on the real email_outbox table with a sender stub that accepts or
+ * rejects every email, to check leasing, backoff and dead-lettering.
+ */
+class EmailOutboxDispatcherTest extends PostgresServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_SECONDS = 30;
+    private static final long LEASE_SECONDS = 120;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    private final StubSender sender = new StubSender();
+    private final EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    EmailOutboxDispatcherTest(EmailOutboxRepository emailOutboxRepository) {
+        this.dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, sender, 50, MAX_ATTEMPTS,
+                BASE_BACKOFF_SECONDS, 3600, LEASE_SECONDS);
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        dispatcher.shutdown();
+        sender.shutdown();
+    }
+
+    @Test
+    void dueEmailIsSentOnce() {
+        EmailOutbox email = queue(LocalDateTime.now().minusSeconds(1), 0);
+
+        dispatcher.dispatch();
+        dispatcher.dispatch();
+
+        EmailOutbox stored = reload(email);
+        assertEquals(EmailOutbox.SENT, stored.getStatus());
+        assertEquals(1, stored.getAttempts());
+        assertNotNull(stored.getSentAt());
+        assertEquals(1, sender.sentTo(email.getToEmail()));
+    }
+
+    @Test
+    void emailNotYetDueIsLeftAlone() {
+        EmailOutbox email = queue(LocalDateTime.now().plusSeconds(30), 0);
+
+        dispatcher.dispatch();
+
+        assertEquals(EmailOutbox.PENDING, reload(email).getStatus());
+        assertEquals(0, sender.sentTo(email.getToEmail()));
+    }
+
+    @Test
+    void failedSendIsRetriedWithBackoff() {
+        sender.fail = true;
+        EmailOutbox email = queue(LocalDateTime.now().minusSeconds(1), 0);
+        LocalDateTime before = LocalDateTime.now();
+
+        dispatcher.dispatch();
+
+        EmailOutbox stored = reload(email);
+        assertEquals(EmailOutbox.PENDING, stored.getStatus());
+        assertEquals(1, stored.getAttempts());
+        assertEquals("Brevo rejected the batch", stored.getLastError());
+        // Base backoff with +-20% jitter
+        assertFalse(stored.getNextAttemptAt().isBefore(before.plusSeconds(BASE_BACKOFF_SECONDS * 8 / 10 - 1)));
+        assertFalse(stored.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(BASE_BACKOFF_SECONDS * 12 / 10 + 1)));
+
+        // Not due again yet, so a second dispatch doesn't resend it
+        dispatcher.dispatch();
+        assertEquals(1, sender.sentTo(email.getToEmail()));
+    }
+
+    @Test
+    void lastFailedAttemptDeadLettersAndRequeueRestoresIt() {
+        sender.fail = true;
+        EmailOutbox email = queue(LocalDateTime.now().minusSeconds(1), MAX_ATTEMPTS - 1);
+
+        dispatcher.dispatch();
+
+        EmailOutbox dead = reload(email);
+        assertEquals(EmailOutbox.DEAD, dead.getStatus());
+        assertEquals(MAX_ATTEMPTS, dead.getAttempts());
+        dispatcher.dispatch();
+        assertEquals(1, sender.sentTo(email.getToEmail()));
+
+        assertTrue(emailOutboxService.retryDeadLetter(email.getId()));
+        // The requeue wakes the application's own dispatcher, which may already have claimed it
+        EmailOutbox requeued = reload(email);
+        assertNotEquals(EmailOutbox.DEAD, requeued.getStatus());
+        assertTrue(requeued.getAttempts() <= 1, "attempts " + requeued.getAttempts());
+        assertFalse(emailOutboxService.retryDeadLetter(email.getId()));
+    }
+
+    @Test
+    void leasedEmailIsClaimedAgainOnlyAfterLeaseRunsOut() {
+        // Leased by a dispatcher that may still be sending it
+        EmailOutbox leased = queue(LocalDateTime.now().plusSeconds(LEASE_SECONDS), 0);
+        leased.setStatus(EmailOutbox.SENDING);
+        emailOutboxRepository.save(leased);
+        // Leased by a dispatcher that died before marking it
+        EmailOutbox abandoned = queue(LocalDateTime.now().minusSeconds(1), 0);
+        abandoned.setStatus(EmailOutbox.SENDING);
+        emailOutboxRepository.save(abandoned);
+
+        dispatcher.dispatch();
+
+        assertEquals(EmailOutbox.SENDING, reload(leased).getStatus());
+        assertEquals(0, sender.sentTo(leased.getToEmail()));
+        assertEquals(EmailOutbox.SENT, reload(abandoned).getStatus());
+    }
+
+    private EmailOutbox queue(LocalDateTime nextAttemptAt, int attempts) {
+        EmailOutbox email = new EmailOutbox();
+        email.setEmailType(EmailOutboxService.ORDER_CONFIRMATION);
+        email.setToEmail("dispatch-" + System.nanoTime() + "@example.com");
+        email.setSubject("Order confirmation");
+        email.setHtmlContent("<p>Thanks</p>");
+        email.setStatus(EmailOutbox.PENDING);
+        email.setAttempts(attempts);
+        email.setNextAttemptAt(nextAttemptAt);
+        email.setCreatedAt(LocalDateTime.now());
+        return emailOutboxRepository.save(email);
+    }
+
+    private EmailOutbox reload(EmailOutbox email) {
+        return emailOutboxRepository.findById(email.getId()).orElseThrow();
+    }
+
+    private static final class StubSender extends BrevoBatchSender {
+        private final List<String> recipients = new CopyOnWriteArrayList<>();
+        private volatile boolean fail;
+
+        StubSender() {
+            super(new RestTemplate(), "http://localhost:1/unused", "test", "shop@example.com", "Shop", 50, 10, 1);
+        }
+
+        @Override
+        public CompletableFuture<Void> send(String to, String subject, String htmlContent) {
+            recipients.add(to);
+            return fail
+                    ? CompletableFuture.failedFuture(new IllegalStateException("Brevo rejected the batch"))
+                    : CompletableFuture.completedFuture(null);
+        }
+
+        long sentTo(String to) {
+            return recipients.stream().filter(to::equals).count();
+        }
+    }
+}
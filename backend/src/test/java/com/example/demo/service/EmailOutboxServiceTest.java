@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.model.EmailOutbox;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderStatus;
+import com.example.demo.model.User;
+import com.example.demo.repository.EmailOutboxRepository;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Debouncing of order status emails in the outbox (30 s window, 300 s cap by default).
+ */
+class EmailOutboxServiceTest extends PostgresServiceTest {
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private Order order;
+
+    @BeforeEach
+    void placeOrder() {
+        customer = userRepository.save(User.builder()
+                .email("outbox-" + System.nanoTime() + "@example.com").password("secret").name("Outbox User").build());
+        order = new Order();
+        order.setUser(customer);
+        order.setStatus(OrderStatus.ORDERED);
+        order.setSubtotal(10.0);
+        order.setShippingFee(0.0);
+        order.setOrderTotal(10.0);
+        order.setItems(new ArrayList<>());
+        order = orderRepository.save(order);
+    }
+
+    @Test
+    void changesInWindowCoalesceIntoOneEmail() {
+        LocalDateTime before = LocalDateTime.now();
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "ordered", "confirmed");
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "confirmed", "shipped");
+
+        List<EmailOutbox> emails = statusEmails();
+        assertEquals(1, emails.size());
+        EmailOutbox email = emails.get(0);
+        assertEquals(EmailOutbox.PENDING, email.getStatus());
+        // From what the customer last heard about to the final status
+        assertEquals("ordered", email.getPreviousStatus());
+        assertTrue(email.getSubject().contains("Shipped"), email.getSubject());
+        assertTrue(email.getHtmlContent().contains("Ordered"));
+        assertBetween(before.plusSeconds(30), LocalDateTime.now().plusSeconds(30), email.getNextAttemptAt());
+    }
+
+    @Test
+    void returningToPreviousStatusCancelsEmail() {
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "ordered", "confirmed");
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "confirmed", "ordered");
+
+        assertTrue(statusEmails().isEmpty());
+    }
+
+    @Test
+    void streamOfChangesIsHeldBackNoLongerThanMaxDelay() {
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "ordered", "confirmed");
+        // The first change was queued 290 s ago, so only 10 s of the 300 s cap are left
+        jdbcTemplate.update("UPDATE email_outbox SET created_at = created_at - interval '290 seconds' WHERE order_id = ?", order.getId());
+        LocalDateTime createdAt = statusEmails().get(0).getCreatedAt();
+
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "confirmed", "processing");
+
+        assertBetween(createdAt.plusSeconds(300), createdAt.plusSeconds(300), statusEmails().get(0).getNextAttemptAt());
+    }
+
+    @Test
+    void emailAlreadyClaimedIsNotReplaced() {
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "ordered", "confirmed");
+        // The dispatcher leased it for sending
+        jdbcTemplate.update("UPDATE email_outbox SET status = 'SENDING' WHERE order_id = ?", order.getId());
+
+        emailOutboxService.enqueueOrderStatusUpdate(customer, order, "confirmed", "shipped");
+
+        List<EmailOutbox> emails = statusEmails();
+        assertEquals(2, emails.size());
+        assertEquals(EmailOutbox.SENDING, emails.get(0).getStatus());
+        assertEquals(EmailOutbox.PENDING, emails.get(1).getStatus());
+        assertEquals("confirmed", emails.get(1).getPreviousStatus());
+    }
+
+    private List<EmailOutbox> statusEmails() {
+        return emailOutboxRepository.findAll().stream()
+                .filter(email -> order.getId().equals(email.getOrderId()) && EmailOutboxService.ORDER_STATUS.equals(email.getEmailType()))
+                .sorted((a, b) -> a.getId().compareTo(b.getId()))
+                .toList();
+    }
+
+    // Timestamps go through the database, which keeps microseconds
+    private static void assertBetween(LocalDateTime from, LocalDateTime to, LocalDateTime actual) {
+        Duration slack = Duration.ofMillis(1);
+        assertFalse(actual.isBefore(from.minus(slack)), actual + " is before " + from);
+        assertFalse(actual.isAfter(to.plus(slack)), actual + " is after " + to);
+    }
+}
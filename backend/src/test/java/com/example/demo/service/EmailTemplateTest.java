@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateTest {
+
+    private static final EmailTemplate PRICE = EmailTemplate.compile("<td>${{price}}</td>");
+
+    @Test
+    void moneyMatchesStringFormatOnEdgeValues() {
+        double[] values = {
+                0, -0.0, 0.004, 0.005, 0.015, 0.285, 1.005, 1.015, 2.675, 10.125, 99.995, 1234.565,
+                -0.001, -0.005, -1.005, -2.675, 0.1 + 0.2, 19.99 * 3, 1e15, 123456789012345.67,
+                Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        for (double value : values) {
+            assertMoney(value);
+        }
+    }
+
+    @Test
+    void moneyMatchesStringFormatOnPrices() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // Half-cent amounts are where the two roundings used to differ
+            assertMoney(random.nextInt(1_000_000) / 1000.0);
+            assertMoney(random.nextDouble() * 10_000);
+        }
+    }
+
+    @Test
+    void nullMoneyPrintsNull() {
+        assertEquals("<td>$null</td>", PRICE.writer().money("price", null).finish());
+    }
+
+    @Test
+    void slotOutOfOrderFails() {
+        assertThrows(IllegalStateException.class, () -> PRICE.writer().text("total", "1"));
+    }
+
+    private static void assertMoney(double value) {
+        assertEquals("<td>$" + String.format("%.2f", value) + "</td>",
+                PRICE.writer().money("price", value).finish(), () -> "for " + value);
+    }
+}
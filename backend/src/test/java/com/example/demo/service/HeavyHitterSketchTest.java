@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Search term counts and the top-K list kept for the chat insights.
+ */
+class HeavyHitterSketchTest {
+
+    @Test
+    void estimatesNeverUnderCount() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(64, 4, 5);
+        for (int i = 0; i < 2000; i++) {
+            sketch.add("term-" + (i % 200));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(sketch.estimate("term-" + i) >= 10);
+        }
+        assertEquals(2000, sketch.getTotal());
+    }
+
+    @Test
+    void topTermsAreTheHeavyHittersInOrder() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1024, 4, 3);
+        add(sketch, "phone", 300);
+        add(sketch, "laptop", 200);
+        add(sketch, "watch", 100);
+        for (int i = 0; i < 500; i++) {
+            sketch.add("rare-" + i);
+        }
+
+        assertEquals(List.of("phone", "laptop", "watch"), terms(sketch.getTopTerms()));
+        assertEquals(300L, sketch.getTopTerms().get(0).get("count"));
+    }
+
+    // The top-K table is updated with CAS only; concurrent offers must not lose the heavy terms
+    @Test
+    void concurrentAddsKeepHeavyHittersAndExactTotal() throws Exception {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(4096, 4, 5);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] writers = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 5000; i++) {
+                        sketch.add(i % 2 == 0 ? "hot-" + (i % 6) : "cold-" + thread + "-" + i);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * 5000L, sketch.getTotal());
+        List<String> top = terms(sketch.getTopTerms());
+        assertTrue(top.containsAll(List.of("hot-0", "hot-2", "hot-4")), "top terms " + top);
+        // Each term appears once, even if a race briefly put it in two slots
+        assertEquals(top.size(), top.stream().distinct().count());
+        for (Map<String, Object> term : sketch.getTopTerms()) {
+            if (((String) term.get("term")).startsWith("hot-")) {
+                assertTrue((Long) term.get("count") >= threads * 5000L / 6, term.toString());
+            }
+        }
+    }
+
+    private static void add(HeavyHitterSketch sketch, String term, int times) {
+        for (int i = 0; i < times; i++) {
+            sketch.add(term);
+        }
+    }
+
+    private static List<String> terms(List<Map<String, Object>> topTerms) {
+        return topTerms.stream().map(term -> (String) term.get("term")).toList();
+    }
+}
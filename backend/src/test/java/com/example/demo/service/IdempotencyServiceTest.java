@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest extends PostgresServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Long userId = System.nanoTime();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void retryWithSameBodyReplaysResponse() {
+        IdempotencyService.Response first = idempotencyService.execute(userId, "key-1", Map.of("total", 10), this::placeOrder);
+        IdempotencyService.Response retry = idempotencyService.execute(userId, "key-1", Map.of("total", 10), this::placeOrder);
+
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(first.getStatus(), retry.getStatus());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void retryOnAnotherInstanceReplaysStoredResponse() {
+        IdempotencyService.Response first = idempotencyService.execute(userId, "key-2", Map.of("total", 10), this::placeOrder);
+
+        // No cached copy, so the response has to come from the stored key
+        IdempotencyService other = new IdempotencyService(idempotencyRecordRepository, transactionTemplate, objectMapper, 24, 10);
+        IdempotencyService.Response retry = other.execute(userId, "key-2", Map.of("total", 10), this::placeOrder);
+
+        assertTrue(retry.isReplayed());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyConflicts() {
+        idempotencyService.execute(userId, "key-3", Map.of("total", 10), this::placeOrder);
+
+        assertThrows(IdempotencyKeyConflictException.class,
+                () -> idempotencyService.execute(userId, "key-3", Map.of("total", 99), this::placeOrder));
+        IdempotencyService other = new IdempotencyService(idempotencyRecordRepository, transactionTemplate, objectMapper, 24, 10);
+        assertThrows(IdempotencyKeyConflictException.class,
+                () -> other.execute(userId, "key-3", Map.of("total", 99), this::placeOrder));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedActionLeavesNoKey() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(userId, "key-4", Map.of("total", 10), () -> {
+            throw new IllegalStateException("Out of stock");
+        }));
+        assertTrue(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, "key-4").isEmpty());
+
+        // The retry runs the action instead of replaying or conflicting
+        IdempotencyService.Response retry = idempotencyService.execute(userId, "key-4", Map.of("total", 10), this::placeOrder);
+        assertFalse(retry.isReplayed());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void blankKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute(userId, " ", Map.of("total", 10), this::placeOrder));
+    }
+
+    private Map<String, Object> placeOrder() {
+        return Map.of("orderId", 1000 + runs.incrementAndGet());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderPage;
+import com.example.demo.dto.OrderTotals;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderStatus;
+import com.example.demo.model.User;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderHistoryTest extends PostgresServiceTest {
+
+    private static final int ORDERS = OrderService.DEFAULT_PAGE_SIZE + 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void placeOrders() {
+        user = userRepository.save(User.builder()
+                .email("history-" + System.nanoTime() + "@example.com").password("secret").name("History User").build());
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setStatus(OrderStatus.ORDERED);
+            order.setSubtotal(10.0);
+            order.setShippingFee(0.0);
+            order.setOrderTotal(10.0);
+            order.setItems(new ArrayList<>());
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+    }
+
+    @Test
+    void firstPageWithoutLimitUsesDefaultPageSize() {
+        OrderPage page = orderService.getOrdersPage(user.getId(), null, null);
+
+        assertEquals(OrderService.DEFAULT_PAGE_SIZE, page.getOrders().size());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    void totalsCoverWholeHistory() {
+        OrderTotals totals = orderService.getOrderTotals(user.getId());
+
+        assertEquals(ORDERS, totals.getTotalOrders());
+        assertEquals(ORDERS * 10.0, totals.getTotalSpent(), 1e-9);
+    }
+
+    @Test
+    void pagesFollowCursorToTheEnd() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderPage page = orderService.getOrdersPage(user.getId(), cursor, 20);
+            page.getOrders().forEach(order -> seen.add(order.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(ORDERS, seen.size());
+        assertEquals(ORDERS, seen.stream().distinct().count());
+    }
+
+    @Test
+    void cursorWithoutLimitUsesDefaultPageSize() {
+        OrderPage first = orderService.getOrdersPage(user.getId(), null, 1);
+        OrderPage rest = orderService.getOrdersPage(user.getId(), first.getNextCursor(), null);
+
+        assertEquals(OrderService.DEFAULT_PAGE_SIZE, rest.getOrders().size());
+        assertNotNull(rest.getNextCursor());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptException;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs db/order-status.sql the way spring.sql.init does, against an orders table that still has
+ * the old text status, in a schema of its own.
+ */
+class OrderStatusScriptTest extends PostgresServiceTest {
+
+    private static final ClassPathResource SCRIPT = new ClassPathResource("db/order-status.sql");
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Connection connection;
+
+    @BeforeEach
+    void legacySchema() throws SQLException {
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS legacy_orders CASCADE");
+            statement.execute("CREATE SCHEMA legacy_orders");
+            statement.execute("SET search_path TO legacy_orders");
+            statement.execute("CREATE TABLE orders (id bigint PRIMARY KEY, status varchar(255) NOT NULL)");
+        }
+    }
+
+    @AfterEach
+    void dropSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO public");
+            statement.execute("DROP SCHEMA legacy_orders CASCADE");
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    void convertsKnownNamesInAnyCase() throws SQLException {
+        insert("(1, 'ORDERED'), (2, ' shipped'), (3, 'Cancelled'), (4, 'delivered')");
+
+        ScriptUtils.executeSqlScript(connection, SCRIPT);
+        // A second start finds a smallint column and leaves it alone
+        ScriptUtils.executeSqlScript(connection, SCRIPT);
+
+        assertEquals(List.of(0, 4, 6, 5), statuses());
+    }
+
+    @Test
+    void unknownValueStopsConversionWithItsName() throws SQLException {
+        insert("(1, 'shipped'), (2, 'refunded')");
+
+        ScriptException error = assertThrows(ScriptException.class, () -> ScriptUtils.executeSqlScript(connection, SCRIPT));
+        assertTrue(rootMessage(error).contains("refunded"), rootMessage(error));
+
+        // Nothing was converted, so fixing the row and restarting succeeds
+        insert("(3, 'ordered')");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE orders SET status = 'cancelled' WHERE id = 2");
+        }
+        ScriptUtils.executeSqlScript(connection, SCRIPT);
+        assertEquals(List.of(4, 6, 0), statuses());
+    }
+
+    private void insert(String rows) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO orders (id, status) VALUES " + rows);
+        }
+    }
+
+    private List<Integer> statuses() throws SQLException {
+        List<Integer> statuses = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT status FROM orders ORDER BY id")) {
+            while (rows.next()) {
+                statuses.add(rows.getInt(1));
+            }
+        }
+        return statuses;
+    }
+
+    private static String rootMessage(Throwable error) {
+        while (error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error.getMessage();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Product ordinals that chat sessions keep between turns, across catalog refreshes.
+ */
+class ProductCatalogTest {
+
+    private static final String CATALOG = "[{\"id\":\"a\",\"name\":\"Phone\",\"price\":100},"
+            + "{\"id\":\"b\",\"name\":\"Laptop\",\"price\":900},"
+            + "{\"id\":\"c\",\"name\":\"Watch\",\"price\":50}]";
+
+    private final ProductService productService = new ProductService();
+    private String apiResponse = CATALOG;
+
+    @BeforeEach
+    void stubApi() {
+        ReflectionTestUtils.setField(productService, "restTemplate", new RestTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+                return (T) apiResponse;
+            }
+        });
+    }
+
+    @Test
+    void ordinalsSurviveRefreshOfSameCatalog() {
+        List<Map<String, Object>> products = productService.getAllProducts();
+        int[] ordinals = productService.toOrdinals(List.of(products.get(2), products.get(0)), ChatContextStore.MAX_RESULTS);
+        long version = productService.getCatalogVersion();
+
+        expireCache();
+        productService.getAllProducts();
+
+        List<Map<String, Object>> resolved = productService.fromOrdinals(ordinals, version);
+        assertNotNull(resolved, "a refresh that returned the same catalog dropped the session's results");
+        assertEquals(List.of("Watch", "Phone"), resolved.stream().map(product -> product.get("name")).toList());
+    }
+
+    @Test
+    void ordinalsExpireWhenCatalogChanges() {
+        List<Map<String, Object>> products = productService.getAllProducts();
+        int[] ordinals = productService.toOrdinals(List.of(products.get(1)), ChatContextStore.MAX_RESULTS);
+        long version = productService.getCatalogVersion();
+
+        apiResponse = "[{\"id\":\"d\",\"name\":\"Camera\",\"price\":300}," + CATALOG.substring(1);
+        expireCache();
+        productService.getAllProducts();
+
+        assertNull(productService.fromOrdinals(ordinals, version));
+    }
+
+    @Test
+    void nothingResolvesBeforeCatalogIsLoaded() {
+        assertNull(productService.fromOrdinals(new int[]{0}, productService.getCatalogVersion()));
+    }
+
+    private void expireCache() {
+        ReflectionTestUtils.setField(productService, "lastCacheTime", 0L);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.demo.stress;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.CustomUserDetails;
+import com.example.demo.security.JwtService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers the cart endpoints from many threads at once, against an embedded PostgreSQL,
+ * and checks that no update is lost and no duplicate cart line appears.
+ *
+ * Run with: mvn -Pstress test [-Dstress.threads=16 -Dstress.iterations=50]
+ * Throughput and latency percentiles are printed for each scenario.
+ */
+@Tag("stress")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "brevo.api.key=stress-test")
+class CartConcurrencyStressTest {
+
+    private static final int USERS = 4;
+    private static final int THREADS = Integer.getInteger("stress.threads", 16);
+    private static final int ITERATIONS = Integer.getInteger("stress.iterations", 50);
+
+    private static final EmbeddedPostgres postgres = startPostgres();
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    // Every thread adds the same product and color for its user; the quantities must add up on one row
+    @Test
+    void concurrentAddsToSameLineAreNotLost() throws Exception {
+        List<String> tokens = createUsers("adds");
+
+        Result result = run("add-same-line", (thread, iteration) -> {
+            String token = tokens.get(thread % USERS);
+            return send(token, "POST", "/api/cart/add",
+                    "{\"productId\":\"101\",\"color\":\"red\",\"quantity\":1,\"price\":25.0}");
+        });
+
+        int threadsPerUser = THREADS / USERS;
+        for (int user = 0; user < USERS; user++) {
+            int expected = (threadsPerUser + (user < THREADS % USERS ? 1 : 0)) * ITERATIONS;
+            List<Map<String, Object>> cart = getCart(tokens.get(user));
+            assertEquals(1, cart.size(), "duplicate cart lines for user " + user + ": " + cart);
+            assertEquals(expected, ((Number) cart.get(0).get("quantity")).intValue(), "lost adds for user " + user);
+        }
+        assertEquals(0, result.failures, "failed requests");
+    }
+
+    /*
+     * Quantity updates on one line race with adds on another line of the same cart.
+     * The added line must count every add, and the updated line must end on a value
+     * some thread actually wrote, with no extra rows.
+     */
+    @Test
+    void concurrentUpdatesAndAddsKeepCartConsistent() throws Exception {
+        List<String> tokens = createUsers("mixed");
+        Map<String, Long> updatedLineIds = new HashMap<>();
+        for (String token : tokens) {
+            Map<String, Object> item = objectMapper.readValue(send(token, "POST", "/api/cart/add",
+                    "{\"productId\":\"201\",\"color\":\"blue\",\"quantity\":1,\"price\":10.0}").body(), new TypeReference<>() {});
+            updatedLineIds.put(token, ((Number) item.get("id")).longValue());
+        }
+
+        AtomicInteger adds = new AtomicInteger();
+        Result result = run("update-and-add", (thread, iteration) -> {
+            String token = tokens.get(thread % USERS);
+            if ((thread + iteration) % 2 == 0) {
+                return send(token, "PUT", "/api/cart/update-quantity",
+                        "{\"cartItemId\":" + updatedLineIds.get(token) + ",\"quantity\":" + updatedQuantity(thread, iteration) + "}");
+            }
+            adds.incrementAndGet();
+            return send(token, "POST", "/api/cart/add",
+                    "{\"productId\":\"202\",\"color\":\"green\",\"quantity\":1,\"price\":5.0}");
+        });
+        assertEquals(0, result.failures, "failed requests");
+
+        Set<Integer> writtenQuantities = new HashSet<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                writtenQuantities.add(updatedQuantity(thread, iteration));
+            }
+        }
+
+        int totalAdded = 0;
+        for (String token : tokens) {
+            List<Map<String, Object>> cart = getCart(token);
+            assertEquals(2, cart.size(), "unexpected cart lines: " + cart);
+            for (Map<String, Object> line : cart) {
+                int quantity = ((Number) line.get("quantity")).intValue();
+                if (((Number) line.get("id")).longValue() == updatedLineIds.get(token)) {
+                    assertTrue(writtenQuantities.contains(quantity), "quantity " + quantity + " was never written");
+                } else {
+                    totalAdded += quantity;
+                }
+            }
+        }
+        assertEquals(adds.get(), totalAdded, "lost adds");
+    }
+
+    private static int updatedQuantity(int thread, int iteration) {
+        return 2 + thread * ITERATIONS + iteration;
+    }
+
+    private List<String> createUsers(String prefix) {
+        List<String> tokens = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = userRepository.save(User.builder()
+                    .email(prefix + "-" + i + "-" + System.nanoTime() + "@stress.test")
+                    .password("not-used")
+                    .name("Stress User")
+                    .build());
+            tokens.add(jwtService.generateToken(new CustomUserDetails(user)));
+        }
+        return tokens;
+    }
+
+    private List<Map<String, Object>> getCart(String token) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(token, "GET", "/api/cart/my", null);
+        assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readValue(response.body(), new TypeReference<>() {});
+    }
+
+    private HttpResponse<String> send(String token, String method, String path, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json");
+        request.method(method, body != null
+                ? HttpRequest.BodyPublishers.ofString(body)
+                : HttpRequest.BodyPublishers.noBody());
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Start all threads together, time every request and print throughput and latency percentiles
+    private Result run(String scenario, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>(THREADS);
+        AtomicInteger failures = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                long[] latencies = new long[ITERATIONS];
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    long begin = System.nanoTime();
+                    HttpResponse<String> response = operation.execute(thread, i);
+                    latencies[i] = System.nanoTime() - begin;
+                    if (response.statusCode() != 200) {
+                        failures.incrementAndGet();
+                        System.out.println("Request failed with " + response.statusCode() + ": " + response.body());
+                    }
+                }
+                return latencies;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] all = new long[THREADS * ITERATIONS];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get(5, TimeUnit.MINUTES);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("[stress] %s: %d requests on %d threads in %.2f s, %.0f req/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d failed%n",
+                scenario, all.length, THREADS, elapsed / 1e9, all.length / (elapsed / 1e9),
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6, failures.get());
+        return new Result(failures.get());
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    // Stopped at JVM exit rather than after the class, since the cached Spring context still holds connections
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // The temporary data directory is removed on a best-effort basis
+                }
+            }));
+            return postgres;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start embedded PostgreSQL", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        HttpResponse<String> execute(int thread, int iteration) throws Exception;
+    }
+
+    private record Result(int failures) {
+    }
+}
@@ -9,6 +9,7 @@ const Chat = () => {
   const [isLoading, setIsLoading] = useState(false);
   const [currentSuggestions, setCurrentSuggestions] = useState([]);
   const messagesEndRef = useRef(null);
+  const sessionIdRef = useRef(null);
 
   // Predefined suggestion sets that rotate
   const suggestionSets = [
@@ -125,7 +126,8 @@ const Chat = () => {
     try {
       const requestBody = {
         message: textToSend,
-        userId: userId
+        userId: userId,
+        sessionId: sessionIdRef.current
       };
       
       console.log('Request body:', requestBody);
@@ -151,6 +153,9 @@ const Chat = () => {
 
       const data = await response.json();
       console.log('Chat response received:', data);
+      if (data.sessionId) {
+        sessionIdRef.current = data.sessionId;
+      }
       console.log('=== MESSAGE COMPLETE ===');
       
       const aiMessage = { 
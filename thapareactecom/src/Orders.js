@@ -7,7 +7,7 @@ import { useOrdersContext } from "./context/orders_context";
 import AuthForm from "./components/AuthForm";
 
 const Orders = () => {
-  const { orders, isLoading, error, fetchOrdersFromBackend } = useOrdersContext();
+  const { orders, nextCursor, isLoading, isLoadingMore, error, fetchOrdersFromBackend, loadMoreOrders } = useOrdersContext();
   const [showAuthForm, setShowAuthForm] = useState(false);
   const [hasFetched, setHasFetched] = useState(false); // ✅ Added to prevent multiple fetches
 
@@ -193,6 +193,14 @@ const Orders = () => {
             </div>
           </div>
         ))}
+
+        {nextCursor && (
+          <div className="load-more">
+            <Button onClick={loadMoreOrders} disabled={isLoadingMore}>
+              {isLoadingMore ? "Loading..." : "Load Older Orders"}
+            </Button>
+          </div>
+        )}
       </div>
     </Wrapper>
   );
@@ -249,6 +257,21 @@ const Wrapper = styled.section`
     }
   }
 
+  .load-more {
+    text-align: center;
+
+    button {
+      font-size: 1.4rem;
+      padding: 1rem 2rem;
+
+      &:disabled {
+        background-color: #95a5a6;
+        cursor: not-allowed;
+        opacity: 0.7;
+      }
+    }
+  }
+
   .order-card {
     position: relative;
     background: #fff;
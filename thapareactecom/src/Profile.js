@@ -197,10 +197,9 @@ const Profile = () => {
         console.log("Could not fetch cart stats:", error);
       }
 
-      // Fetch orders data
+      // Fetch order totals (counted and summed on the server, over the whole history)
       try {
-        // Adjust this endpoint based on your actual orders API
-        const ordersResponse = await fetch("https://stopshop-backend.onrender.com/api/orders/my-orders", {
+        const ordersResponse = await fetch("https://stopshop-backend.onrender.com/api/orders/my-orders/summary", {
           method: "GET",
           headers: { 
             "Authorization": `Bearer ${token}`,
@@ -209,34 +208,13 @@ const Profile = () => {
         });
 
         if (ordersResponse.ok) {
-          const ordersData = await ordersResponse.json();
-          console.log("Orders data:", ordersData);
-          
-          let totalOrders = 0;
-          let totalSpent = 0;
-
-          // Calculate totals - adjust based on your orders response structure
-          if (Array.isArray(ordersData)) {
-            totalOrders = ordersData.length;
-            totalSpent = ordersData.reduce((sum, order) => {
-              const orderTotal = parseFloat(order.total || order.totalAmount || order.amount || 0);
-              return sum + orderTotal;
-            }, 0);
-          } else if (ordersData.orders && Array.isArray(ordersData.orders)) {
-            totalOrders = ordersData.orders.length;
-            totalSpent = ordersData.orders.reduce((sum, order) => {
-              const orderTotal = parseFloat(order.total || order.totalAmount || order.amount || 0);
-              return sum + orderTotal;
-            }, 0);
-          } else if (ordersData.totalOrders !== undefined) {
-            totalOrders = ordersData.totalOrders;
-            totalSpent = parseFloat(ordersData.totalSpent || 0);
-          }
+          const orderTotals = await ordersResponse.json();
+          console.log("Order totals:", orderTotals);
 
           setUserStats(prev => ({
             ...prev,
-            totalOrders,
-            totalSpent
+            totalOrders: orderTotals.totalOrders || 0,
+            totalSpent: parseFloat(orderTotals.totalSpent || 0)
           }));
         } else {
           console.log("Orders API response not OK:", ordersResponse.status);
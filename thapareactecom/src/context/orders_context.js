@@ -3,9 +3,13 @@ import React, { createContext, useContext, useReducer, useCallback } from "react
 
 const OrdersContext = createContext();
 
+const ORDERS_URL = "https://stopshop-backend.onrender.com/api/orders/my-orders";
+
 const initialState = {
   orders: [],
+  nextCursor: null, // X-Next-Cursor of the last page loaded; null when there are no older orders
   isLoading: false,
+  isLoadingMore: false,
   error: null,
 };
 
@@ -15,10 +19,26 @@ const ordersReducer = (state, action) => {
       return { ...state, isLoading: action.payload };
     case "SET_ERROR":
       return { ...state, error: action.payload, isLoading: false };
+    case "SET_LOADING_MORE":
+      return { ...state, isLoadingMore: action.payload };
     case "LOAD_ORDERS":
-      return { ...state, orders: action.payload, isLoading: false, error: null };
+      return {
+        ...state,
+        orders: action.payload.orders,
+        nextCursor: action.payload.nextCursor,
+        isLoading: false,
+        error: null,
+      };
+    case "APPEND_ORDERS":
+      return {
+        ...state,
+        orders: [...state.orders, ...action.payload.orders],
+        nextCursor: action.payload.nextCursor,
+        isLoadingMore: false,
+        error: null,
+      };
     case "CLEAR_ORDERS":
-      return { ...state, orders: [] };
+      return { ...state, orders: [], nextCursor: null };
     case "PLACE_ORDER_SUCCESS":
       return { 
         ...state, 
@@ -69,7 +89,8 @@ export const OrdersProvider = ({ children }) => {
     dispatch({ type: "SET_LOADING", payload: true });
 
     try {
-      const response = await fetch("https://stopshop-backend.onrender.com/api/orders/my-orders", {
+      // First page only; older orders are fetched by loadMoreOrders
+      const response = await fetch(ORDERS_URL, {
         method: "GET",
         headers: getAuthHeaders(),
       });
@@ -88,7 +109,10 @@ export const OrdersProvider = ({ children }) => {
       const ordersFromDb = await response.json();
       console.log("Fetched orders from backend:", ordersFromDb);
 
-      dispatch({ type: "LOAD_ORDERS", payload: ordersFromDb });
+      dispatch({
+        type: "LOAD_ORDERS",
+        payload: { orders: ordersFromDb, nextCursor: response.headers.get("X-Next-Cursor") },
+      });
 
     } catch (error) {
       console.error("Failed to fetch orders from backend:", error);
@@ -96,6 +120,37 @@ export const OrdersProvider = ({ children }) => {
     }
   }, [getToken, getAuthHeaders]); // ✅ Only depend on stable functions
 
+  // Fetch the next page of older orders by following the cursor of the last page
+  const loadMoreOrders = useCallback(async () => {
+    if (!state.nextCursor || state.isLoadingMore) {
+      return;
+    }
+
+    dispatch({ type: "SET_LOADING_MORE", payload: true });
+
+    try {
+      const response = await fetch(`${ORDERS_URL}?cursor=${encodeURIComponent(state.nextCursor)}`, {
+        method: "GET",
+        headers: getAuthHeaders(),
+      });
+
+      if (!response.ok) {
+        throw new Error(`Failed to fetch orders: ${response.status}`);
+      }
+
+      const olderOrders = await response.json();
+      dispatch({
+        type: "APPEND_ORDERS",
+        payload: { orders: olderOrders, nextCursor: response.headers.get("X-Next-Cursor") },
+      });
+
+    } catch (error) {
+      console.error("Failed to fetch more orders:", error);
+      dispatch({ type: "SET_LOADING_MORE", payload: false });
+      dispatch({ type: "SET_ERROR", payload: error.message });
+    }
+  }, [state.nextCursor, state.isLoadingMore, getAuthHeaders]);
+
   // Place order by calling backend API
   const placeOrder = useCallback(async (cartItems) => {
     const token = getToken();
@@ -181,6 +236,7 @@ export const OrdersProvider = ({ children }) => {
         placeOrder,
         clearOrders,
         fetchOrdersFromBackend,
+        loadMoreOrders,
       }}
     >
       {children}